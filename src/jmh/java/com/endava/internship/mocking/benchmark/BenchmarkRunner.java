@@ -0,0 +1,40 @@
+package com.endava.internship.mocking.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Runs the benchmarks with the GC profiler attached, so every result also reports allocation
+ * rate per operation. Accepts the usual JMH command line, for example:
+ *
+ *   java -jar target/benchmarks.jar PaymentServiceBenchmark -p paymentCount=1000000 -t 8
+ *
+ * Without -t every benchmark is repeated for each thread count in -Dbench.threads (default 1,4).
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        final CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        if (commandLine.getThreads().hasValue()) {
+            run(commandLine, commandLine.getThreads().get());
+            return;
+        }
+        for (String threads : System.getProperty("bench.threads", "1,4").split(",")) {
+            run(commandLine, Integer.parseInt(threads.trim()));
+        }
+    }
+
+    private static void run(CommandLineOptions commandLine, int threads) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .parent(commandLine)
+            .threads(threads)
+            .addProfiler(GCProfiler.class)
+            .build())
+            .run();
+    }
+}
@@ -0,0 +1,62 @@
+package com.endava.internship.mocking.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.endava.internship.mocking.model.Payment;
+import com.endava.internship.mocking.repository.InMemPaymentRepository;
+import com.endava.internship.mocking.repository.PaymentRepository;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentRepositoryBenchmark {
+
+    @Param({"1000", "100000"})
+    public int paymentCount;
+
+    private PaymentRepository paymentRepository;
+
+    private List<Payment> payments;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        paymentRepository = new InMemPaymentRepository();
+        payments = Payments.randomPayments(paymentCount, 42);
+        payments.forEach(paymentRepository::save);
+    }
+
+    @Benchmark
+    public Payment save() {
+        return paymentRepository.save(new Payment(1, 100.00, "Payment from user 1"));
+    }
+
+    @Benchmark
+    public Object findById() {
+        final Payment payment = payments.get(ThreadLocalRandom.current().nextInt(paymentCount));
+        return paymentRepository.findById(payment.getPaymentId());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<Payment> findAll() {
+        return paymentRepository.findAll();
+    }
+}
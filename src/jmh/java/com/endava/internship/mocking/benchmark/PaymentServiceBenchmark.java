@@ -0,0 +1,91 @@
+package com.endava.internship.mocking.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.endava.internship.mocking.model.Payment;
+import com.endava.internship.mocking.repository.InMemPaymentRepository;
+import com.endava.internship.mocking.repository.InMemUserRepository;
+import com.endava.internship.mocking.repository.PaymentRepository;
+import com.endava.internship.mocking.service.BasicValidationService;
+import com.endava.internship.mocking.service.PaymentService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    public int paymentCount;
+
+    // share of stored payments returned by getAllByAmountExceeding
+    @Param({"0.01", "0.5"})
+    public double selectivity;
+
+    private PaymentService paymentService;
+
+    private ForkJoinPool scanPool;
+
+    private List<Payment> payments;
+
+    private double threshold;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        final PaymentRepository paymentRepository = new InMemPaymentRepository();
+        paymentService = new PaymentService(new InMemUserRepository(Payments.users(Payments.USER_COUNT)),
+            paymentRepository, new BasicValidationService());
+        payments = Payments.randomPayments(paymentCount, 42);
+        payments.forEach(paymentRepository::save);
+        threshold = Payments.MAX_AMOUNT * (1 - selectivity);
+        scanPool = new ForkJoinPool();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        scanPool.shutdown();
+    }
+
+    @Benchmark
+    public Payment createPayment() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return paymentService.createPayment(1 + random.nextInt(Payments.USER_COUNT), 1 + random.nextDouble(999));
+    }
+
+    @Benchmark
+    public Payment editPaymentMessage() {
+        final Payment payment = payments.get(ThreadLocalRandom.current().nextInt(paymentCount));
+        return paymentService.editPaymentMessage(payment.getPaymentId(), "Edited");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<Payment> getAllByAmountExceeding() {
+        return paymentService.getAllByAmountExceeding(threshold);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<Payment> getAllByAmountExceedingInParallel() {
+        return paymentService.getAllByAmountExceeding(threshold, scanPool);
+    }
+}
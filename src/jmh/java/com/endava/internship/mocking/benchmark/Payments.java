@@ -0,0 +1,37 @@
+package com.endava.internship.mocking.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.endava.internship.mocking.model.Payment;
+import com.endava.internship.mocking.model.Status;
+import com.endava.internship.mocking.model.User;
+
+final class Payments {
+
+    static final int USER_COUNT = 1_000;
+
+    static final double MAX_AMOUNT = 1_000.00;
+
+    private Payments() {
+    }
+
+    static List<Payment> randomPayments(int count, long seed) {
+        final Random random = new Random(seed);
+        final List<Payment> payments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int userId = 1 + random.nextInt(USER_COUNT);
+            payments.add(new Payment(userId, 1 + random.nextDouble() * (MAX_AMOUNT - 1), "Payment from user " + userId));
+        }
+        return payments;
+    }
+
+    static List<User> users(int count) {
+        final List<User> users = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            users.add(new User(id, "User " + id, Status.ACTIVE));
+        }
+        return users;
+    }
+}
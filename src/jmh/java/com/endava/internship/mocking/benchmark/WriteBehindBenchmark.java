@@ -0,0 +1,76 @@
+package com.endava.internship.mocking.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.endava.internship.mocking.model.Payment;
+import com.endava.internship.mocking.repository.JournaledPaymentRepository;
+import com.endava.internship.mocking.repository.PaymentRepository;
+import com.endava.internship.mocking.repository.WriteBehindPaymentRepository;
+
+// time a caller waits for save() on the fsync'ing journal, with and without write-behind in front of it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBehindBenchmark {
+
+    @Param({"false", "true"})
+    public boolean writeBehind;
+
+    private Path directory;
+
+    private JournaledPaymentRepository journal;
+
+    private PaymentRepository paymentRepository;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("payments-bench");
+        journal = new JournaledPaymentRepository(directory);
+        paymentRepository = writeBehind ? new WriteBehindPaymentRepository(journal) : journal;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (paymentRepository instanceof WriteBehindPaymentRepository) {
+            ((WriteBehindPaymentRepository) paymentRepository).close();
+        }
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public Payment save() {
+        return paymentRepository.save(new Payment(1, 100.00, "Payment from user 1"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.endava.internship.mocking.metrics;
+
+import static java.util.Objects.isNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+public class MetricRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public Timer timer(String name, String method) {
+        if (isNull(name) || isNull(method)) {
+            throw new IllegalArgumentException("Timer name and method must not be null");
+        }
+        return timers.computeIfAbsent(name + '.' + method, key -> new Timer(name, method));
+    }
+
+    public void gauge(String name, LongSupplier value) {
+        if (isNull(name) || isNull(value)) {
+            throw new IllegalArgumentException("Gauge name and value must not be null");
+        }
+        gauges.put(name, value);
+    }
+
+    public MetricsSnapshot snapshot() {
+        final List<TimerSnapshot> timerSnapshots = new ArrayList<>(timers.size());
+        timers.values().forEach(timer -> timerSnapshots.add(timer.snapshot()));
+        timerSnapshots.sort(Comparator.comparing(TimerSnapshot::getName).thenComparing(TimerSnapshot::getMethod));
+
+        final Map<String, Long> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, value) -> gaugeValues.put(name, value.getAsLong()));
+        return new MetricsSnapshot(System.nanoTime(), timerSnapshots, gaugeValues);
+    }
+
+    // Prometheus text exposition format, so the output can be scraped or diffed without any client library
+    public String scrape() {
+        final MetricsSnapshot snapshot = snapshot();
+        final StringBuilder text = new StringBuilder();
+
+        String currentName = null;
+        for (TimerSnapshot timer : snapshot.getTimers()) {
+            final String metric = timer.getName() + "_seconds";
+            if (!timer.getName().equals(currentName)) {
+                currentName = timer.getName();
+                text.append("# TYPE ").append(metric).append(" summary\n");
+            }
+            final String method = "method=\"" + timer.getMethod() + '"';
+            for (double quantile : QUANTILES) {
+                text.append(metric).append('{').append(method).append(",quantile=\"").append(quantile).append("\"} ")
+                    .append(timer.getValueAtQuantile(quantile) / NANOS_PER_SECOND).append('\n');
+            }
+            text.append(metric).append("_count{").append(method).append("} ").append(timer.getCount()).append('\n');
+            text.append(metric).append("_sum{").append(method).append("} ")
+                .append(timer.getTotalNanos() / NANOS_PER_SECOND).append('\n');
+        }
+
+        // a summary has no max sample, so the largest latency goes out as a gauge family of its own
+        currentName = null;
+        for (TimerSnapshot timer : snapshot.getTimers()) {
+            final String metric = timer.getName() + "_max_seconds";
+            if (!timer.getName().equals(currentName)) {
+                currentName = timer.getName();
+                text.append("# TYPE ").append(metric).append(" gauge\n");
+            }
+            text.append(metric).append("{method=\"").append(timer.getMethod()).append("\"} ")
+                .append(timer.getMaxNanos() / NANOS_PER_SECOND).append('\n');
+        }
+
+        currentName = null;
+        for (TimerSnapshot timer : snapshot.getTimers()) {
+            if (timer.getErrors().isEmpty()) {
+                continue;
+            }
+            final String metric = timer.getName() + "_errors_total";
+            if (!timer.getName().equals(currentName)) {
+                currentName = timer.getName();
+                text.append("# TYPE ").append(metric).append(" counter\n");
+            }
+            timer.getErrors().forEach((type, count) -> text.append(metric)
+                .append("{method=\"").append(timer.getMethod()).append("\",exception=\"").append(type).append("\"} ")
+                .append(count).append('\n'));
+        }
+
+        snapshot.getGauges().forEach((name, value) -> text.append("# TYPE ").append(name).append(" gauge\n")
+            .append(name).append(' ').append(value).append('\n'));
+        return text.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.endava.internship.mocking.metrics;
+
+import static java.util.Objects.isNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public final class MetricsSnapshot {
+
+    private final long capturedAtNanos;
+
+    private final List<TimerSnapshot> timers;
+
+    private final Map<String, Long> gauges;
+
+    MetricsSnapshot(long capturedAtNanos, List<TimerSnapshot> timers, Map<String, Long> gauges) {
+        this.capturedAtNanos = capturedAtNanos;
+        this.timers = Collections.unmodifiableList(timers);
+        this.gauges = Collections.unmodifiableMap(gauges);
+    }
+
+    public long getCapturedAtNanos() {
+        return capturedAtNanos;
+    }
+
+    public List<TimerSnapshot> getTimers() {
+        return timers;
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    public Optional<TimerSnapshot> getTimer(String name, String method) {
+        return timers.stream()
+            .filter(timer -> timer.getName().equals(name) && timer.getMethod().equals(method))
+            .findFirst();
+    }
+
+    // calls per second between an earlier snapshot and this one
+    public double throughputSince(MetricsSnapshot earlier, String name, String method) {
+        if (isNull(earlier)) {
+            throw new IllegalArgumentException("Earlier snapshot must not be null");
+        }
+        final long elapsedNanos = capturedAtNanos - earlier.capturedAtNanos;
+        if (elapsedNanos <= 0) {
+            throw new IllegalArgumentException("Earlier snapshot must be taken before this one");
+        }
+        final long calls = countOf(name, method) - earlier.countOf(name, method);
+        return calls * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    private long countOf(String name, String method) {
+        return getTimer(name, method).map(TimerSnapshot::getCount).orElse(0L);
+    }
+}
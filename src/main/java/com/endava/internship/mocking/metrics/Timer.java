@@ -0,0 +1,66 @@
+package com.endava.internship.mocking.metrics;
+
+import static java.util.Objects.isNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public final class Timer {
+
+    private final String name;
+
+    private final String method;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    Timer(String name, String method) {
+        this.name = name;
+        this.method = method;
+    }
+
+    public <T> T record(Supplier<T> call) {
+        final long start = System.nanoTime();
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            recordError(e);
+            throw e;
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    public void recordError(Throwable error) {
+        final String type = error.getClass().getName();
+        LongAdder counter = errors.get(type);
+        if (isNull(counter)) {
+            counter = errors.computeIfAbsent(type, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public TimerSnapshot snapshot() {
+        final Map<String, Long> errorCounts = new TreeMap<>();
+        errors.forEach((type, counter) -> errorCounts.put(type, counter.sum()));
+        return new TimerSnapshot(name, method, histogram.counts(), histogram.totalNanos(), histogram.maxNanos(),
+            errorCounts);
+    }
+}
@@ -0,0 +1,90 @@
+package com.endava.internship.mocking.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+public final class TimerSnapshot {
+
+    private final String name;
+
+    private final String method;
+
+    private final long[] counts;
+
+    private final long count;
+
+    private final long totalNanos;
+
+    private final long maxNanos;
+
+    private final Map<String, Long> errors;
+
+    TimerSnapshot(String name, String method, long[] counts, long totalNanos, long maxNanos, Map<String, Long> errors) {
+        this.name = name;
+        this.method = method;
+        this.counts = counts;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.errors = Collections.unmodifiableMap(errors);
+
+        long count = 0;
+        for (long bucket : counts) {
+            count += bucket;
+        }
+        this.count = count;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    public long getValueAtQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestValueIn(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    public long getErrorCount() {
+        long errorCount = 0;
+        for (long typeCount : errors.values()) {
+            errorCount += typeCount;
+        }
+        return errorCount;
+    }
+
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+}
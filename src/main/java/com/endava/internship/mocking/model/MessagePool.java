@@ -0,0 +1,57 @@
+package com.endava.internship.mocking.model;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Hands out one shared instance per distinct payment message, so millions of payments with the same text hold
+ * references to a single String. A payment store owns the pool it interns through, so the pool is released together
+ * with the store, and it should be sized for the distinct messages that store will see, in practice one per user.
+ * Every message is kept until the pool is full; from then on new messages are returned as they are, while those
+ * already pooled keep being shared. Long messages are never pooled, they are rarely repeated and would only pin
+ * memory.
+ */
+public class MessagePool {
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int MAX_POOLED_LENGTH = 128;
+
+    private final ConcurrentMap<String, String> messages = new ConcurrentHashMap<>();
+
+    private final int capacity;
+
+    public MessagePool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MessagePool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Message pool capacity must be greater than 0");
+        }
+        this.capacity = capacity;
+    }
+
+    public String intern(String message) {
+        if (isNull(message) || message.length() > MAX_POOLED_LENGTH) {
+            return message;
+        }
+        final String pooled = messages.get(message);
+        if (nonNull(pooled)) {
+            return pooled;
+        }
+        // the size check races with other writers, so the pool may overshoot its capacity by a few entries
+        if (messages.size() >= capacity) {
+            return message;
+        }
+        final String raced = messages.putIfAbsent(message, message);
+        return isNull(raced) ? message : raced;
+    }
+
+    public int size() {
+        return messages.size();
+    }
+}
@@ -5,38 +5,61 @@ import java.util.UUID;
 
 public class Payment {
 
+    private static final PaymentIdGenerator DEFAULT_ID_GENERATOR = new TimeOrderedIdGenerator();
+
     private final UUID paymentId;
 
-    private final Integer userId;
+    private final int userId;
+
+    private final double amount;
 
-    private final Double amount;
+    private final String message;
 
-    private String message;
+    // starts at 0 and goes up by one with every edit, so a writer can tell whether it saw the latest state
+    private final long version;
+
+    public Payment(int userId, double amount, String message) {
+        this(DEFAULT_ID_GENERATOR, userId, amount, message);
+    }
 
-    public Payment(Integer userId, Double amount, String message) {
-        this (UUID.randomUUID(), userId, amount, message);
+    public Payment(PaymentIdGenerator idGenerator, int userId, double amount, String message) {
+        this(idGenerator.nextId(), userId, amount, message, 0);
     }
 
-    private Payment(UUID paymentId, Integer userId, Double amount, String message) {
+    private Payment(UUID paymentId, int userId, double amount, String message, long version) {
         this.paymentId = paymentId;
         this.userId = userId;
         this.amount = amount;
         this.message = message;
+        this.version = version;
+    }
+
+    public static Payment of(UUID paymentId, int userId, double amount, String message) {
+        return new Payment(paymentId, userId, amount, message, 0);
+    }
+
+    public static Payment of(UUID paymentId, int userId, double amount, String message, long version) {
+        return new Payment(paymentId, userId, amount, message, version);
+    }
+
+    public static PaymentIdGenerator defaultIdGenerator() {
+        return DEFAULT_ID_GENERATOR;
     }
 
     public static Payment copyOf(Payment originalPayment) {
-        return new Payment(originalPayment.paymentId, originalPayment.userId, originalPayment.amount, originalPayment.message);
+        return new Payment(originalPayment.paymentId, originalPayment.userId, originalPayment.amount, originalPayment.message,
+            originalPayment.version);
     }
 
     public UUID getPaymentId() {
         return paymentId;
     }
 
-    public Integer getUserId() {
+    public int getUserId() {
         return userId;
     }
 
-    public Double getAmount() {
+    public double getAmount() {
         return amount;
     }
 
@@ -44,8 +67,18 @@ public class Payment {
         return message;
     }
 
-    public void setMessage(String message) {
-        this.message = message;
+    public long getVersion() {
+        return version;
+    }
+
+    public Payment withMessage(String message) {
+        return new Payment(paymentId, userId, amount, message, version + 1);
+    }
+
+    // the same payment at the same version, holding the pool's instance of its message
+    public Payment withPooledMessage(MessagePool pool) {
+        final String pooled = pool.intern(message);
+        return pooled == message ? this : new Payment(paymentId, userId, amount, pooled, version);
     }
 
     @Override
@@ -57,9 +90,9 @@ public class Payment {
             return false;
         }
         Payment payment = (Payment) o;
-        return Objects.equals(paymentId, payment.paymentId) &&
-            Objects.equals(userId, payment.userId) &&
-            Objects.equals(amount, payment.amount);
+        return userId == payment.userId &&
+            Double.compare(amount, payment.amount) == 0 &&
+            Objects.equals(paymentId, payment.paymentId);
     }
 
     @Override
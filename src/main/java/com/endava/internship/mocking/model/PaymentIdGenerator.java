@@ -0,0 +1,7 @@
+package com.endava.internship.mocking.model;
+
+import java.util.UUID;
+
+public interface PaymentIdGenerator {
+    UUID nextId();
+}
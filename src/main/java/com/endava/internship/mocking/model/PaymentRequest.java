@@ -0,0 +1,41 @@
+package com.endava.internship.mocking.model;
+
+import java.util.Objects;
+
+public class PaymentRequest {
+
+    private final Integer userId;
+
+    private final Double amount;
+
+    public PaymentRequest(Integer userId, Double amount) {
+        this.userId = userId;
+        this.amount = amount;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PaymentRequest that = (PaymentRequest) o;
+        return Objects.equals(userId, that.userId) &&
+            Objects.equals(amount, that.amount);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, amount);
+    }
+}
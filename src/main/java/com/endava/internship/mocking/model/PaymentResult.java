@@ -0,0 +1,58 @@
+package com.endava.internship.mocking.model;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+public class PaymentResult {
+
+    private final PaymentRequest request;
+
+    private final Payment payment;
+
+    private final ValidationResult rejection;
+
+    private RuntimeException error;
+
+    private PaymentResult(PaymentRequest request, Payment payment, ValidationResult rejection, RuntimeException error) {
+        this.request = request;
+        this.payment = payment;
+        this.rejection = rejection;
+        this.error = error;
+    }
+
+    public static PaymentResult success(PaymentRequest request, Payment payment) {
+        return new PaymentResult(request, payment, ValidationResult.VALID, null);
+    }
+
+    public static PaymentResult rejected(PaymentRequest request, ValidationResult rejection) {
+        return new PaymentResult(request, null, rejection, null);
+    }
+
+    public static PaymentResult failure(PaymentRequest request, RuntimeException error) {
+        return new PaymentResult(request, null, null, error);
+    }
+
+    public PaymentRequest getRequest() {
+        return request;
+    }
+
+    public Payment getPayment() {
+        return payment;
+    }
+
+    public ValidationResult getRejection() {
+        return rejection;
+    }
+
+    // rejected rows only pay for an exception if somebody asks for it
+    public RuntimeException getError() {
+        if (isNull(error) && nonNull(rejection) && !rejection.isValid()) {
+            error = rejection.toException(request.getUserId());
+        }
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return nonNull(payment);
+    }
+}
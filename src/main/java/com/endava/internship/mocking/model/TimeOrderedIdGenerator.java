@@ -0,0 +1,70 @@
+package com.endava.internship.mocking.model;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/*
+ * Generates UUIDv7 style ids: a millisecond timestamp in the high bits, then a counter and the number of the
+ * stripe that issued the id, and random bits to fill up the rest. Every stripe holds (millis << 16 | counter) in
+ * one atomic long and only ever moves it forward, so ids from one stripe are strictly increasing and the stripe
+ * bits keep stripes apart; uniqueness never depends on the random part. Threads are spread over the stripes by
+ * id, which keeps CAS contention low without per-thread state that virtual threads would make unbounded.
+ *
+ * msb: 48 bits millis | 4 bits version | 12 high counter bits
+ * lsb: 2 bits variant | 4 low counter bits | 8 bits stripe | 50 random bits
+ */
+public class TimeOrderedIdGenerator implements PaymentIdGenerator {
+
+    private static final int COUNTER_BITS = 16;
+
+    private static final int MAX_STRIPES = 256;
+
+    // one stripe per cache line, so neighbouring stripes do not slow each other down
+    private static final int PADDING = 8;
+
+    private static final long VERSION = 0x7000L;
+
+    private static final long VARIANT = 0x8000000000000000L;
+
+    private static final long RANDOM_MASK = (1L << 50) - 1;
+
+    private final AtomicLongArray stripes;
+
+    private final int stripeMask;
+
+    private final LongSupplier clock;
+
+    public TimeOrderedIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    TimeOrderedIdGenerator(LongSupplier clock) {
+        final int stripeCount = Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1));
+        this.stripes = new AtomicLongArray(stripeCount * PADDING);
+        this.stripeMask = stripeCount - 1;
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID nextId() {
+        final int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        final long floor = clock.getAsLong() << COUNTER_BITS;
+
+        // a clock that stands still or goes back only advances the counter, and a counter overflow carries into
+        // the millis, so the state never repeats
+        long previous;
+        long next;
+        do {
+            previous = stripes.get(stripe * PADDING);
+            next = Math.max(floor, previous + 1);
+        } while (!stripes.compareAndSet(stripe * PADDING, previous, next));
+
+        final long counter = next & ((1L << COUNTER_BITS) - 1);
+        final long mostSignificant = (next >>> COUNTER_BITS) << 16 | VERSION | counter >>> 4;
+        final long leastSignificant = VARIANT | (counter & 0xF) << 58 | (long) stripe << 50
+            | ThreadLocalRandom.current().nextLong() & RANDOM_MASK;
+        return new UUID(mostSignificant, leastSignificant);
+    }
+}
@@ -0,0 +1,51 @@
+package com.endava.internship.mocking.model;
+
+import java.util.NoSuchElementException;
+
+public enum ValidationResult {
+    VALID(null),
+    AMOUNT_NULL("Amount must not be null"),
+    AMOUNT_NOT_POSITIVE("Amount must be greater than 0"),
+    PAYMENT_ID_NULL("Payment id must not be null"),
+    USER_ID_NULL("User id must not be null"),
+    USER_NOT_FOUND("User with id %s not found"),
+    USER_NOT_ACTIVE("User with id %s not in ACTIVE status"),
+    MESSAGE_NULL("Payment message must not be null"),
+    AMOUNT_LIMIT_EXCEEDED("Amount exceeds the allowed limit"),
+    USER_LIMIT_EXCEEDED("Amount exceeds the limit of user with id %s"),
+    RATE_LIMIT_EXCEEDED("User with id %s exceeded the payment rate limit");
+
+    private final String messageTemplate;
+
+    ValidationResult(String messageTemplate) {
+        this.messageTemplate = messageTemplate;
+    }
+
+    public boolean isValid() {
+        return this == VALID;
+    }
+
+    public String message(Object subject) {
+        return String.format(messageTemplate, subject);
+    }
+
+    public void throwIfInvalid(Object subject) {
+        if (!isValid()) {
+            throw toException(subject);
+        }
+    }
+
+    public RuntimeException toException(Object subject) {
+        if (isValid()) {
+            throw new IllegalStateException("A valid result has no exception");
+        }
+        if (this == USER_NOT_FOUND) {
+            return new NoSuchElementException(message(subject));
+        }
+        // the request itself is fine, it may be retried once the user's window has refilled
+        if (this == RATE_LIMIT_EXCEEDED) {
+            return new IllegalStateException(message(subject));
+        }
+        return new IllegalArgumentException(message(subject));
+    }
+}
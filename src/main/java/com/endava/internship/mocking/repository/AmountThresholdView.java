@@ -0,0 +1,154 @@
+package com.endava.internship.mocking.repository;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.endava.internship.mocking.model.Payment;
+
+/*
+ * Standing query for all payments above a fixed amount, kept up to date from the change events of an observable
+ * repository instead of rescanning it. The matches are held in an immutable sorted list that every change replaces
+ * in O(log n) of the view's size, so a poll only reads the published list and is O(1); a caller may keep the list it
+ * got for as long as it likes, later changes never show up in it. Subscribers can be told about every payment that
+ * enters, changes in or leaves the view instead of polling at all.
+ *
+ * Events may arrive out of order, so a payment is only replaced by a higher version of itself, and the version of
+ * every payment deleted out of the view is kept for as long as the view lives: a save or edit arriving late for a
+ * deleted payment is dropped instead of bringing it back. Payment ids are not reused, so that memory only grows with
+ * the deletes of matching payments. An edit of a payment the view never held is ignored once the initial scan is
+ * over: amounts never change, so such an edit can only be a late event for a payment deleted before the view
+ * started listening.
+ */
+public class AmountThresholdView implements AutoCloseable {
+
+    private final ObservablePaymentRepository repository;
+
+    private final double threshold;
+
+    private final List<PaymentListener> subscribers = new CopyOnWriteArrayList<>();
+
+    // changes are applied under this lock, readers only ever see the published list
+    private final Object lock = new Object();
+
+    private final Map<UUID, Long> deletedVersions = new HashMap<>();
+
+    private boolean scanned;
+
+    private volatile SortedPaymentList payments = SortedPaymentList.empty();
+
+    private final PaymentListener updater = new PaymentListener() {
+        @Override
+        public void onSaved(Payment payment) {
+            if (payment.getAmount() > threshold && apply(payment, true)) {
+                subscribers.forEach(subscriber -> subscriber.onSaved(payment));
+            }
+        }
+
+        @Override
+        public void onEdited(Payment payment) {
+            if (payment.getAmount() > threshold && apply(payment, false)) {
+                subscribers.forEach(subscriber -> subscriber.onEdited(payment));
+            }
+        }
+
+        @Override
+        public void onDeleted(Payment payment) {
+            if (payment.getAmount() > threshold && remove(payment)) {
+                subscribers.forEach(subscriber -> subscriber.onDeleted(payment));
+            }
+        }
+    };
+
+    public AmountThresholdView(ObservablePaymentRepository repository, double threshold) {
+        if (isNull(repository)) {
+            throw new IllegalArgumentException("Payment repository must not be null");
+        }
+        this.repository = repository;
+        this.threshold = threshold;
+
+        // listen before the initial scan: a payment written meanwhile is then either seen by the scan or
+        // delivered as an event, and the higher version wins whichever comes first
+        repository.addListener(updater);
+        repository.streamByAmountGreaterThan(threshold).forEach(this::applyScanned);
+        synchronized (lock) {
+            scanned = true;
+        }
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public List<Payment> getPayments() {
+        return payments;
+    }
+
+    public int size() {
+        return payments.size();
+    }
+
+    public void subscribe(PaymentListener subscriber) {
+        if (isNull(subscriber)) {
+            throw new IllegalArgumentException("Payment listener must not be null");
+        }
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(PaymentListener subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    @Override
+    public void close() {
+        repository.removeListener(updater);
+        subscribers.clear();
+    }
+
+    // ties go to the event, so it replaces the scan's copy of the same version
+    private boolean apply(Payment payment, boolean insert) {
+        synchronized (lock) {
+            if (isDeleted(payment)) {
+                return false;
+            }
+            final Payment current = payments.find(payment);
+            if (isNull(current) ? !insert && scanned : current.getVersion() > payment.getVersion()) {
+                return false;
+            }
+            payments = payments.with(payment);
+            return true;
+        }
+    }
+
+    // an event of the same version got here first, keep it
+    private void applyScanned(Payment payment) {
+        synchronized (lock) {
+            final Payment current = payments.find(payment);
+            if (!isDeleted(payment) && (isNull(current) || current.getVersion() < payment.getVersion())) {
+                payments = payments.with(payment);
+            }
+        }
+    }
+
+    private boolean remove(Payment payment) {
+        synchronized (lock) {
+            deletedVersions.merge(payment.getPaymentId(), payment.getVersion(), Math::max);
+            final Payment current = payments.find(payment);
+            if (isNull(current) || current.getVersion() > payment.getVersion()) {
+                return false;
+            }
+            payments = payments.without(current);
+            return true;
+        }
+    }
+
+    private boolean isDeleted(Payment payment) {
+        final Long deletedVersion = deletedVersions.get(payment.getPaymentId());
+        return nonNull(deletedVersion) && deletedVersion >= payment.getVersion();
+    }
+}
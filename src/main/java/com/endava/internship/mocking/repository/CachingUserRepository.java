@@ -0,0 +1,192 @@
+package com.endava.internship.mocking.repository;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.endava.internship.mocking.model.User;
+
+public class CachingUserRepository implements UserRepository {
+
+    private final UserRepository delegate;
+
+    private final long timeToLiveNanos;
+
+    private final LongSupplier ticker;
+
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingUserRepository(UserRepository delegate, int maximumSize, Duration timeToLive) {
+        this(delegate, maximumSize, timeToLive, System::nanoTime);
+    }
+
+    CachingUserRepository(UserRepository delegate, int maximumSize, Duration timeToLive, LongSupplier ticker) {
+        if (isNull(delegate)) {
+            throw new IllegalArgumentException("User repository must not be null");
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be greater than 0");
+        }
+        if (isNull(timeToLive) || timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Time to live must be greater than 0");
+        }
+        this.delegate = delegate;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.ticker = ticker;
+
+        // one LRU segment per core at most, but never so many that a segment holds less than one entry
+        final int segmentCount = Math.min(
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1),
+            Integer.highestOneBit(maximumSize));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0));
+        }
+    }
+
+    @Override
+    public Optional<User> findById(Integer userId) {
+        if (isNull(userId)) {
+            throw new IllegalArgumentException("User id must not be null");
+        }
+
+        final Segment segment = segmentFor(userId);
+        final User cached = segment.get(userId, ticker.getAsLong());
+        if (nonNull(cached)) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+
+        misses.increment();
+        // a user invalidated while the load was in flight may have changed, so the loaded copy is not cached
+        final long invalidations = segment.invalidations();
+        final Optional<User> loaded = delegate.findById(userId);
+        loaded.ifPresent(user -> segment.putIfNotInvalidated(userId, user, ticker.getAsLong() + timeToLiveNanos,
+            invalidations));
+        return loaded;
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    public void invalidate(Integer userId) {
+        if (isNull(userId)) {
+            throw new IllegalArgumentException("User id must not be null");
+        }
+        segmentFor(userId).remove(userId);
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment segmentFor(Integer userId) {
+        final int h = userId * 0x9E3779B9;
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    private static final class CacheEntry {
+
+        private final User user;
+
+        private final long expiresAt;
+
+        private CacheEntry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Segment {
+
+        private final Map<Integer, CacheEntry> entries;
+
+        // bumped by every invalidation of this segment, read before a load and checked again before caching it
+        private long invalidations;
+
+        private Segment(int capacity) {
+            entries = new LinkedHashMap<Integer, CacheEntry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, CacheEntry> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized User get(Integer userId, long now) {
+            final CacheEntry entry = entries.get(userId);
+            if (isNull(entry)) {
+                return null;
+            }
+            if (now - entry.expiresAt >= 0) {
+                entries.remove(userId);
+                return null;
+            }
+            return entry.user;
+        }
+
+        synchronized long invalidations() {
+            return invalidations;
+        }
+
+        synchronized void putIfNotInvalidated(Integer userId, User user, long expiresAt, long seenInvalidations) {
+            if (invalidations == seenInvalidations) {
+                entries.put(userId, new CacheEntry(user, expiresAt));
+            }
+        }
+
+        synchronized void remove(Integer userId) {
+            invalidations++;
+            entries.remove(userId);
+        }
+
+        synchronized void clear() {
+            invalidations++;
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.endava.internship.mocking.repository;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// immutable consistent-hash ring; every shard owns a number of virtual points so load spreads evenly
+final class HashRing {
+
+    private final Map<String, PaymentRepository> shards;
+
+    private final long[] points;
+
+    private final String[] owners;
+
+    HashRing(Map<String, PaymentRepository> shards, int virtualNodes) {
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+
+        final int pointCount = shards.size() * virtualNodes;
+        final long[][] entries = new long[pointCount][];
+        final String[] ids = shards.keySet().toArray(new String[0]);
+        int i = 0;
+        for (int shard = 0; shard < ids.length; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                entries[i++] = new long[]{hash(ids[shard] + '#' + node), shard};
+            }
+        }
+        Arrays.sort(entries, (left, right) -> Long.compare(left[0], right[0]));
+
+        points = new long[pointCount];
+        owners = new String[pointCount];
+        for (int point = 0; point < pointCount; point++) {
+            points[point] = entries[point][0];
+            owners[point] = ids[(int) entries[point][1]];
+        }
+    }
+
+    String ownerIdOf(UUID paymentId) {
+        final int index = Arrays.binarySearch(points, hash(paymentId));
+        final int point = index >= 0 ? index : -index - 1;
+        return owners[point == points.length ? 0 : point];
+    }
+
+    PaymentRepository ownerOf(UUID paymentId) {
+        return shards.get(ownerIdOf(paymentId));
+    }
+
+    boolean contains(String shardId) {
+        return shards.containsKey(shardId);
+    }
+
+    Collection<PaymentRepository> shards() {
+        return shards.values();
+    }
+
+    Map<String, PaymentRepository> shardsById() {
+        return shards;
+    }
+
+    private static long hash(UUID paymentId) {
+        return mix(paymentId.getMostSignificantBits() * 31 + paymentId.getLeastSignificantBits());
+    }
+
+    // FNV-1a over the UTF-8 bytes, then the same finalizer as for ids
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        long h = value;
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -5,21 +5,57 @@ import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.endava.internship.mocking.model.MessagePool;
 import com.endava.internship.mocking.model.Payment;
 
 public class InMemPaymentRepository implements PaymentRepository {
 
-    private final Map<UUID, Payment> paymentMap;
+    // every payment sits in its own slot, so an edit is a compare-and-set on that slot and nothing else
+    private final ConcurrentMap<UUID, AtomicReference<Payment>> paymentMap;
+
+    private final ConcurrentNavigableMap<Double, Set<UUID>> amountIndex;
+
+    private final ConcurrentMap<Integer, UserPayments> userIndex;
+
+    private final ConcurrentSkipListSet<UUID> paymentOrder;
+
+    // stored payments share one instance per repeated message instead of keeping a copy each
+    private final MessagePool messagePool;
 
     public InMemPaymentRepository() {
-        paymentMap = new HashMap<>();
+        this(new MessagePool());
+    }
+
+    public InMemPaymentRepository(MessagePool messagePool) {
+        if (isNull(messagePool)) {
+            throw new IllegalArgumentException("Message pool must not be null");
+        }
+        this.messagePool = messagePool;
+        paymentMap = new ConcurrentHashMap<>();
+        paymentOrder = new ConcurrentSkipListSet<>();
+        amountIndex = new ConcurrentSkipListMap<>();
+        userIndex = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -27,41 +63,412 @@ public class InMemPaymentRepository implements PaymentRepository {
         if (isNull(paymentId)) {
             throw new IllegalArgumentException("Payment id must not be null");
         }
-        return ofNullable(paymentMap.get(paymentId))
-            .map(Payment::copyOf);
+        return ofNullable(current(paymentId));
     }
 
     @Override
     public List<Payment> findAll() {
+        return stream().collect(toList());
+    }
+
+    @Override
+    public Stream<Payment> stream() {
         return paymentMap.values()
             .stream()
-            .map(Payment::copyOf)
+            .map(AtomicReference::get)
+            .filter(Objects::nonNull);
+    }
+
+    @Override
+    public List<Payment> findPage(UUID after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be greater than 0");
+        }
+        return (isNull(after) ? paymentOrder : paymentOrder.tailSet(after, false))
+            .stream()
+            .map(this::current)
+            .filter(Objects::nonNull)
+            .limit(limit)
             .collect(toList());
     }
 
     @Override
-    public Payment save(Payment payment) {
-        if (isNull(payment)) {
-            throw new IllegalArgumentException("Payment must not be null");
+    public List<Payment> findByAmountGreaterThan(double amount) {
+        return streamByAmountGreaterThan(amount)
+            .collect(toList());
+    }
+
+    @Override
+    public Stream<Payment> streamByAmountGreaterThan(double amount) {
+        return StreamSupport.stream(
+            new AmountIndexSpliterator(amountIndex.tailMap(amount, false), null, amount, paymentMap.size()), false);
+    }
+
+    @Override
+    public List<Payment> findByUserId(int userId) {
+        final UserPayments userPayments = userIndex.get(userId);
+        if (isNull(userPayments)) {
+            return new ArrayList<>();
         }
+        return userPayments.paymentIds
+            .stream()
+            .map(this::current)
+            .filter(Objects::nonNull)
+            .collect(toList());
+    }
+
+    @Override
+    public double sumAmountByUser(int userId) {
+        final UserPayments userPayments = userIndex.get(userId);
+        return isNull(userPayments) ? 0 : userPayments.totalAmount();
+    }
+
+    @Override
+    public long countByUser(int userId) {
+        final UserPayments userPayments = userIndex.get(userId);
+        return isNull(userPayments) ? 0 : userPayments.count();
+    }
 
-        if (nonNull(payment.getPaymentId()) && findById(payment.getPaymentId()).isPresent()) {
+    // may include the payments of a batch that is still being saved
+    @Override
+    public long count() {
+        return paymentMap.size();
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        validatePayment(payment);
+
+        final Payment stored = payment.withPooledMessage(messagePool);
+        final AtomicReference<Payment> slot = new AtomicReference<>();
+        if (nonNull(paymentMap.putIfAbsent(stored.getPaymentId(), slot))) {
             throw new IllegalArgumentException("Payment with id " + payment.getPaymentId() + " already saved");
         }
+        publish(slot, stored);
 
-        paymentMap.put(payment.getPaymentId(), Payment.copyOf(payment));
+        return stored;
+    }
 
-        return payment;
+    // every id is reserved with an empty slot first, so a batch that is refused half way was never visible to readers
+    @Override
+    public List<Payment> saveAll(List<Payment> payments) {
+        if (isNull(payments)) {
+            throw new IllegalArgumentException("Payments must not be null");
+        }
+        payments.forEach(this::validatePayment);
+
+        final List<AtomicReference<Payment>> slots = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            final AtomicReference<Payment> slot = new AtomicReference<>();
+            if (nonNull(paymentMap.putIfAbsent(payment.getPaymentId(), slot))) {
+                for (int i = 0; i < slots.size(); i++) {
+                    paymentMap.remove(payments.get(i).getPaymentId(), slots.get(i));
+                }
+                throw new IllegalArgumentException("Payment with id " + payment.getPaymentId() + " already saved");
+            }
+            slots.add(slot);
+        }
+
+        final List<Payment> stored = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            final Payment pooled = payments.get(i).withPooledMessage(messagePool);
+            publish(slots.get(i), pooled);
+            stored.add(pooled);
+        }
+        return stored;
     }
 
     @Override
     public Payment editMessage(UUID paymentId, String message) {
-        final Payment payment = paymentMap.get(paymentId);
-        if (isNull(payment)) {
+        if (isNull(paymentId)) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+        // payments are immutable, so an edit swaps in a new version and readers keep whichever one they got
+        final AtomicReference<Payment> slot = paymentMap.get(paymentId);
+        while (true) {
+            final Payment stored = isNull(slot) ? null : slot.get();
+            if (isNull(stored)) {
+                throw new NoSuchElementException("Payment with id " + paymentId + " not found");
+            }
+            final Payment edited = stored.withMessage(messagePool.intern(message));
+            if (slot.compareAndSet(stored, edited)) {
+                return edited;
+            }
+        }
+    }
+
+    @Override
+    public Payment editMessage(UUID paymentId, long expectedVersion, String message) {
+        if (isNull(paymentId)) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+        final AtomicReference<Payment> slot = paymentMap.get(paymentId);
+        final Payment stored = isNull(slot) ? null : slot.get();
+        if (isNull(stored)) {
             throw new NoSuchElementException("Payment with id " + paymentId + " not found");
         }
 
-        payment.setMessage(message);
-        return Payment.copyOf(payment);
+        // a lost race is reported like a stale version: the caller has to re-read either way
+        final Payment edited = stored.withMessage(messagePool.intern(message));
+        if (stored.getVersion() != expectedVersion || !slot.compareAndSet(stored, edited)) {
+            throw new ConcurrentModificationException(
+                "Payment with id " + paymentId + " is no longer at version " + expectedVersion);
+        }
+        return edited;
+    }
+
+    // the indexes are cleaned up after the payment is gone, so lookups through them skip ids that no longer resolve
+    @Override
+    public Payment delete(UUID paymentId) {
+        if (isNull(paymentId)) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+        final Payment[] deleted = new Payment[1];
+        paymentMap.computeIfPresent(paymentId, (id, slot) -> {
+            // emptying the slot makes edits that already hold it fail instead of changing a deleted payment
+            deleted[0] = slot.getAndSet(null);
+            if (isNull(deleted[0])) {
+                // reserved by a save that has not published the payment yet
+                return slot;
+            }
+            unindex(deleted[0]);
+            return null;
+        });
+        if (isNull(deleted[0])) {
+            throw new NoSuchElementException("Payment with id " + paymentId + " not found");
+        }
+
+        return deleted[0];
+    }
+
+    private Payment current(UUID paymentId) {
+        final AtomicReference<Payment> slot = paymentMap.get(paymentId);
+        return isNull(slot) ? null : slot.get();
+    }
+
+    private void validatePayment(Payment payment) {
+        if (isNull(payment)) {
+            throw new IllegalArgumentException("Payment must not be null");
+        }
+        if (isNull(payment.getPaymentId())) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+    }
+
+    // indexing and filling the slot run under the map's lock for the id, the one delete takes as well, so a delete can
+    // never unindex a payment before it was indexed
+    private void publish(AtomicReference<Payment> slot, Payment payment) {
+        paymentMap.computeIfPresent(payment.getPaymentId(), (paymentId, reserved) -> {
+            index(payment);
+            slot.set(payment);
+            return reserved;
+        });
+    }
+
+    private void index(Payment payment) {
+        amountIndex.computeIfAbsent(payment.getAmount(), amount -> ConcurrentHashMap.newKeySet())
+            .add(payment.getPaymentId());
+        userIndex.computeIfAbsent(payment.getUserId(), userId -> new UserPayments())
+            .add(payment);
+        paymentOrder.add(payment.getPaymentId());
+    }
+
+    private void unindex(Payment payment) {
+        final Set<UUID> sameAmount = amountIndex.get(payment.getAmount());
+        if (nonNull(sameAmount)) {
+            sameAmount.remove(payment.getPaymentId());
+        }
+        final UserPayments userPayments = userIndex.get(payment.getUserId());
+        if (nonNull(userPayments)) {
+            userPayments.remove(payment);
+        }
+        paymentOrder.remove(payment.getPaymentId());
+    }
+
+    /*
+     * Walks the amount index lazily. A split cuts the amounts that are left in two at the middle of their values, so
+     * it costs a few skip list lookups and copies nothing; once a single amount is left, the ids of its bucket are
+     * split instead, so many payments of one amount still spread over the workers. Estimates count payments: all of
+     * them to start with, halved by every split of the amounts. The index orders keys with Double.compareTo, which
+     * puts NaN on top and -0.0 below 0.0, so keys are also checked with > to answer the same as a plain scan.
+     */
+    private final class AmountIndexSpliterator implements Spliterator<Payment> {
+
+        private final double amount;
+
+        // the amounts not started yet, null once there are none
+        private ConcurrentNavigableMap<Double, Set<UUID>> range;
+
+        private Iterator<Map.Entry<Double, Set<UUID>>> buckets;
+
+        private Double walked;
+
+        // the ids of the bucket being walked
+        private Spliterator<UUID> ids;
+
+        private Payment next;
+
+        private long estimate;
+
+        private AmountIndexSpliterator(ConcurrentNavigableMap<Double, Set<UUID>> range, Spliterator<UUID> ids,
+                                       double amount, long estimate) {
+            this.range = range;
+            this.ids = ids;
+            this.amount = amount;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Payment> action) {
+            while (true) {
+                while (nonNull(ids) && ids.tryAdvance(this::take)) {
+                    if (nonNull(next)) {
+                        final Payment payment = next;
+                        next = null;
+                        action.accept(payment);
+                        return true;
+                    }
+                }
+                final Set<UUID> bucket = nextBucket();
+                if (isNull(bucket)) {
+                    return false;
+                }
+                ids = bucket.spliterator();
+            }
+        }
+
+        @Override
+        public Spliterator<Payment> trySplit() {
+            if (nonNull(buckets)) {
+                // only the amounts after the one walked last are left to split
+                range = isNull(walked) ? range : range.tailMap(walked, false);
+                buckets = null;
+                walked = null;
+            }
+            final Map.Entry<Double, Set<UUID>> first = isNull(range) ? null : range.firstEntry();
+            final Map.Entry<Double, Set<UUID>> last = isNull(range) ? null : range.lastEntry();
+            if (isNull(first) || isNull(last)) {
+                range = null;
+                return splitIds();
+            }
+            if (first.getKey().equals(last.getKey())) {
+                if (nonNull(ids)) {
+                    // the bucket already being walked comes first, so it goes with the prefix
+                    final Spliterator<Payment> prefix =
+                        new AmountIndexSpliterator(null, ids, amount, ids.estimateSize());
+                    ids = null;
+                    return prefix;
+                }
+                if (!(first.getKey() > amount)) {
+                    return null;
+                }
+                ids = first.getValue().spliterator();
+                range = null;
+                return splitIds();
+            }
+
+            final Double middle = middle(first.getKey(), last.getKey());
+            estimate >>>= 1;
+            final Spliterator<Payment> prefix = new AmountIndexSpliterator(range.headMap(middle, false), ids, amount,
+                estimate);
+            range = range.tailMap(middle, true);
+            ids = null;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+
+        private void take(UUID paymentId) {
+            next = current(paymentId);
+        }
+
+        private Spliterator<Payment> splitIds() {
+            final Spliterator<UUID> prefix = isNull(ids) ? null : ids.trySplit();
+            if (isNull(prefix)) {
+                return null;
+            }
+            estimate = ids.estimateSize();
+            return new AmountIndexSpliterator(null, prefix, amount, prefix.estimateSize());
+        }
+
+        private Set<UUID> nextBucket() {
+            if (isNull(range)) {
+                return null;
+            }
+            if (isNull(buckets)) {
+                buckets = range.entrySet().iterator();
+            }
+            while (buckets.hasNext()) {
+                final Map.Entry<Double, Set<UUID>> entry = buckets.next();
+                walked = entry.getKey();
+                if (entry.getKey() > amount) {
+                    return entry.getValue();
+                }
+            }
+            range = null;
+            buckets = null;
+            return null;
+        }
+    }
+
+    // a key above first and not above last, halfway between them for finite amounts
+    private static Double middle(double first, double last) {
+        final double middle = first / 2 + last / 2;
+        if (Double.compare(first, middle) < 0 && Double.compare(middle, last) <= 0) {
+            return middle;
+        }
+        // halve the distance in Double.compareTo order instead, which always makes progress
+        final long low = sortable(first);
+        final long high = sortable(last);
+        return unsortable((low >> 1) + (high >> 1) + (low & high & 1) + 1);
+    }
+
+    // a long that orders the same way as the double does under Double.compareTo
+    private static long sortable(double value) {
+        final long bits = Double.doubleToLongBits(value);
+        return bits ^ (bits >> 63 & Long.MAX_VALUE);
+    }
+
+    private static double unsortable(long sortable) {
+        return Double.longBitsToDouble(sortable ^ (sortable >> 63 & Long.MAX_VALUE));
+    }
+
+    private static final class UserPayments {
+
+        private final Set<UUID> paymentIds = ConcurrentHashMap.newKeySet();
+
+        private double totalAmount;
+
+        private long count;
+
+        // the id set is concurrent on its own, the lock only keeps the total and the count in step
+        synchronized void add(Payment payment) {
+            paymentIds.add(payment.getPaymentId());
+            totalAmount += payment.getAmount();
+            count++;
+        }
+
+        synchronized void remove(Payment payment) {
+            if (paymentIds.remove(payment.getPaymentId())) {
+                totalAmount -= payment.getAmount();
+                count--;
+            }
+        }
+
+        synchronized double totalAmount() {
+            return totalAmount;
+        }
+
+        synchronized long count() {
+            return count;
+        }
     }
 }
@@ -1,23 +1,37 @@
 package com.endava.internship.mocking.repository;
 
+import static java.util.Objects.isNull;
+
 import java.util.Arrays;
-import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
 
 import com.endava.internship.mocking.model.Status;
 import com.endava.internship.mocking.model.User;
 
 public class InMemUserRepository implements UserRepository {
 
-    private List<User> userList;
+    private final IntObjectHashMap<User> userMap;
+
+    private final StampedLock lock;
 
     public InMemUserRepository() {
-        userList = Arrays.asList(
+        this(Arrays.asList(
             new User(1, "John", Status.ACTIVE),
             new User(2, "Maria", Status.ACTIVE),
             new User(3, "Peter", Status.INACTIVE),
             new User(4, "Anna", Status.ACTIVE),
-            new User(5, "David", Status.INACTIVE));
+            new User(5, "David", Status.INACTIVE)));
+    }
+
+    public InMemUserRepository(Collection<User> users) {
+        if (isNull(users)) {
+            throw new IllegalArgumentException("Users must not be null");
+        }
+        userMap = new IntObjectHashMap<>(users.size());
+        lock = new StampedLock();
+        saveAll(users);
     }
 
     @Override
@@ -25,6 +39,70 @@ public class InMemUserRepository implements UserRepository {
         if (userId == null) {
             throw new IllegalArgumentException("User id must not be null");
         }
-        return userList.stream().filter(user -> userId.equals(user.getId())).findFirst();
+        final int id = userId;
+
+        // lookups run without locking and only fall back to the read lock if a writer got in between
+        long stamp = lock.tryOptimisticRead();
+        User user = userMap.get(id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                user = userMap.get(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return Optional.ofNullable(user);
+    }
+
+    @Override
+    public long count() {
+        long stamp = lock.tryOptimisticRead();
+        int size = userMap.size();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                size = userMap.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    public User save(User user) {
+        validateUser(user);
+
+        final long stamp = lock.writeLock();
+        try {
+            userMap.put(user.getId(), user);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return user;
+    }
+
+    public void saveAll(Collection<User> users) {
+        if (isNull(users)) {
+            throw new IllegalArgumentException("Users must not be null");
+        }
+        users.forEach(this::validateUser);
+
+        final long stamp = lock.writeLock();
+        try {
+            userMap.ensureCapacity(userMap.size() + users.size());
+            users.forEach(user -> userMap.put(user.getId(), user));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void validateUser(User user) {
+        if (isNull(user)) {
+            throw new IllegalArgumentException("User must not be null");
+        }
+        if (isNull(user.getId())) {
+            throw new IllegalArgumentException("User id must not be null");
+        }
     }
 }
@@ -0,0 +1,145 @@
+package com.endava.internship.mocking.repository;
+
+import static java.util.Objects.isNull;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import com.endava.internship.mocking.metrics.MetricRegistry;
+import com.endava.internship.mocking.metrics.Timer;
+import com.endava.internship.mocking.model.Payment;
+
+public class InstrumentedPaymentRepository implements PaymentRepository {
+
+    private static final String METRIC = "payment_repository";
+
+    private final PaymentRepository delegate;
+
+    private final Timer findByIdTimer;
+
+    private final Timer findAllTimer;
+
+    private final Timer streamTimer;
+
+    private final Timer findPageTimer;
+
+    private final Timer findByAmountTimer;
+
+    private final Timer streamByAmountTimer;
+
+    private final Timer findByUserIdTimer;
+
+    private final Timer sumAmountByUserTimer;
+
+    private final Timer countByUserTimer;
+
+    private final Timer countTimer;
+
+    private final Timer saveTimer;
+
+    private final Timer saveAllTimer;
+
+    private final Timer editMessageTimer;
+
+    private final Timer deleteTimer;
+
+    public InstrumentedPaymentRepository(PaymentRepository delegate, MetricRegistry registry) {
+        if (isNull(delegate) || isNull(registry)) {
+            throw new IllegalArgumentException("Payment repository and metric registry must not be null");
+        }
+        this.delegate = delegate;
+        findByIdTimer = registry.timer(METRIC, "findById");
+        findAllTimer = registry.timer(METRIC, "findAll");
+        streamTimer = registry.timer(METRIC, "stream");
+        findPageTimer = registry.timer(METRIC, "findPage");
+        findByAmountTimer = registry.timer(METRIC, "findByAmountGreaterThan");
+        streamByAmountTimer = registry.timer(METRIC, "streamByAmountGreaterThan");
+        findByUserIdTimer = registry.timer(METRIC, "findByUserId");
+        sumAmountByUserTimer = registry.timer(METRIC, "sumAmountByUser");
+        countByUserTimer = registry.timer(METRIC, "countByUser");
+        countTimer = registry.timer(METRIC, "count");
+        saveTimer = registry.timer(METRIC, "save");
+        saveAllTimer = registry.timer(METRIC, "saveAll");
+        editMessageTimer = registry.timer(METRIC, "editMessage");
+        deleteTimer = registry.timer(METRIC, "delete");
+        registry.gauge(METRIC + "_size", delegate::count);
+    }
+
+    @Override
+    public Optional<Payment> findById(UUID paymentId) {
+        return findByIdTimer.record(() -> delegate.findById(paymentId));
+    }
+
+    @Override
+    public List<Payment> findAll() {
+        return findAllTimer.record(delegate::findAll);
+    }
+
+    // only opening the stream is timed, consumption happens on the caller's side
+    @Override
+    public Stream<Payment> stream() {
+        return streamTimer.record(delegate::stream);
+    }
+
+    @Override
+    public List<Payment> findPage(UUID after, int limit) {
+        return findPageTimer.record(() -> delegate.findPage(after, limit));
+    }
+
+    @Override
+    public List<Payment> findByAmountGreaterThan(double amount) {
+        return findByAmountTimer.record(() -> delegate.findByAmountGreaterThan(amount));
+    }
+
+    @Override
+    public Stream<Payment> streamByAmountGreaterThan(double amount) {
+        return streamByAmountTimer.record(() -> delegate.streamByAmountGreaterThan(amount));
+    }
+
+    @Override
+    public List<Payment> findByUserId(int userId) {
+        return findByUserIdTimer.record(() -> delegate.findByUserId(userId));
+    }
+
+    @Override
+    public double sumAmountByUser(int userId) {
+        return sumAmountByUserTimer.record(() -> delegate.sumAmountByUser(userId));
+    }
+
+    @Override
+    public long countByUser(int userId) {
+        return countByUserTimer.record(() -> delegate.countByUser(userId));
+    }
+
+    @Override
+    public long count() {
+        return countTimer.record(delegate::count);
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        return saveTimer.record(() -> delegate.save(payment));
+    }
+
+    @Override
+    public List<Payment> saveAll(List<Payment> payments) {
+        return saveAllTimer.record(() -> delegate.saveAll(payments));
+    }
+
+    @Override
+    public Payment editMessage(UUID paymentId, String message) {
+        return editMessageTimer.record(() -> delegate.editMessage(paymentId, message));
+    }
+
+    @Override
+    public Payment editMessage(UUID paymentId, long expectedVersion, String message) {
+        return editMessageTimer.record(() -> delegate.editMessage(paymentId, expectedVersion, message));
+    }
+
+    @Override
+    public Payment delete(UUID paymentId) {
+        return deleteTimer.record(() -> delegate.delete(paymentId));
+    }
+}
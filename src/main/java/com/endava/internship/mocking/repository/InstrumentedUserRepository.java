@@ -0,0 +1,40 @@
+package com.endava.internship.mocking.repository;
+
+import static java.util.Objects.isNull;
+
+import java.util.Optional;
+
+import com.endava.internship.mocking.metrics.MetricRegistry;
+import com.endava.internship.mocking.metrics.Timer;
+import com.endava.internship.mocking.model.User;
+
+public class InstrumentedUserRepository implements UserRepository {
+
+    private static final String METRIC = "user_repository";
+
+    private final UserRepository delegate;
+
+    private final Timer findByIdTimer;
+
+    private final Timer countTimer;
+
+    public InstrumentedUserRepository(UserRepository delegate, MetricRegistry registry) {
+        if (isNull(delegate) || isNull(registry)) {
+            throw new IllegalArgumentException("User repository and metric registry must not be null");
+        }
+        this.delegate = delegate;
+        findByIdTimer = registry.timer(METRIC, "findById");
+        countTimer = registry.timer(METRIC, "count");
+        registry.gauge(METRIC + "_size", delegate::count);
+    }
+
+    @Override
+    public Optional<User> findById(Integer userId) {
+        return findByIdTimer.record(() -> delegate.findById(userId));
+    }
+
+    @Override
+    public long count() {
+        return countTimer.record(delegate::count);
+    }
+}
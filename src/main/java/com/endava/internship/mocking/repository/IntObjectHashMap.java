@@ -0,0 +1,106 @@
+package com.endava.internship.mocking.repository;
+
+import static java.util.Objects.isNull;
+
+class IntObjectHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+
+    private Object[] values;
+
+    private int size;
+
+    IntObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    IntObjectHashMap(int expectedSize) {
+        final int capacity = tableSizeFor(expectedSize);
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    // safe to call while a writer is active as long as the caller validates the read afterwards
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        final int[] keys = this.keys;
+        final Object[] values = this.values;
+        if (keys.length != values.length) {
+            return null;
+        }
+        final int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            final Object value = values[i];
+            if (isNull(value) || keys[i] == key) {
+                return (V) value;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (isNull(value)) {
+            throw new IllegalArgumentException("Value must not be null");
+        }
+        final int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                final V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length >> 1) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void ensureCapacity(int expectedSize) {
+        final int capacity = tableSizeFor(expectedSize);
+        if (capacity > keys.length) {
+            resize(capacity);
+        }
+    }
+
+    private void resize(int capacity) {
+        final int[] oldKeys = keys;
+        final Object[] oldValues = values;
+        final int[] newKeys = new int[capacity];
+        final Object[] newValues = new Object[capacity];
+        final int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = mix(oldKeys[j]) & mask;
+                while (newValues[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                newKeys[i] = oldKeys[j];
+                newValues[i] = oldValues[j];
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        // keep the load factor at or below one half so probe chains stay short
+        final int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize) * 2 - 1) << 1;
+        return Math.max(MIN_CAPACITY, capacity);
+    }
+
+    private static int mix(int key) {
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
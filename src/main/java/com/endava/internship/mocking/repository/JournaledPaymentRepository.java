@@ -0,0 +1,771 @@
+package com.endava.internship.mocking.repository;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import com.endava.internship.mocking.model.Payment;
+
+/*
+ * Write-ahead journal in front of an in-memory copy of the payments. Every save and edit is appended
+ * to payments.log as [length][type][payload][crc32] and acknowledged once the log is forced to disk;
+ * callers that arrive while another thread is forcing share the next fsync (group commit). A change reaches
+ * the in-memory copy only after the fsync that covers it succeeded. Until then it is kept as unsynced, so the
+ * writers behind it validate against it. A failed write or fsync cuts the log back to the last record known to be
+ * good, so no later record is ever appended behind a torn one.
+ * On startup the latest snapshot is loaded and the log is replayed through a memory mapping, stopping
+ * at the first torn or corrupt record. A checkpoint writes a new snapshot on a background thread and then
+ * replaces the log with the records written since the snapshot was taken.
+ */
+public class JournaledPaymentRepository implements PaymentRepository, Closeable {
+
+    static final String LOG_FILE = "payments.log";
+
+    static final String SNAPSHOT_FILE = "payments.snapshot";
+
+    private static final int DEFAULT_SNAPSHOT_THRESHOLD = 100_000;
+
+    private static final long MAX_MAPPED_CHUNK = 1 << 30;
+
+    private static final int SNAPSHOT_MAGIC = 0x50534e31;
+
+    // saves written before payments carried a version, still replayed as version 0
+    private static final byte UNVERSIONED_SAVE = 1;
+
+    // edits written before they carried the resulting version, replayed as one more increment
+    private static final byte UNVERSIONED_EDIT = 2;
+
+    private static final byte DELETE = 3;
+
+    private static final byte SAVE = 4;
+
+    private static final byte EDIT = 5;
+
+    private static final int FRAME_BYTES = 2 * Integer.BYTES;
+
+    private final Path directory;
+
+    private final int snapshotThreshold;
+
+    private final UnaryOperator<FileChannel> logChannels;
+
+    private final InMemPaymentRepository state;
+
+    // lock order: checkpointLock, syncLock, writeLock
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final Object syncLock = new Object();
+
+    private final Object checkpointLock = new Object();
+
+    private final ExecutorService checkpointer;
+
+    private final AtomicBoolean checkpointQueued = new AtomicBoolean();
+
+    // the fields below are guarded by writeLock, the log is only replaced while syncLock is held as well
+    private FileChannel log;
+
+    private final Deque<PendingWrite> unsynced = new ArrayDeque<>();
+
+    // the latest unsynced change per payment, empty for a delete
+    private final Map<UUID, Optional<Payment>> unsyncedPayments = new HashMap<>();
+
+    private long writtenPosition;
+
+    private long durablePosition;
+
+    private long recordsSinceSnapshot;
+
+    private IOException broken;
+
+    private boolean replayStopped;
+
+    public JournaledPaymentRepository(Path directory) {
+        this(directory, DEFAULT_SNAPSHOT_THRESHOLD);
+    }
+
+    public JournaledPaymentRepository(Path directory, int snapshotThreshold) {
+        this(directory, snapshotThreshold, UnaryOperator.identity());
+    }
+
+    // logChannels wraps every channel opened on the log, so tests can make it fail
+    JournaledPaymentRepository(Path directory, int snapshotThreshold, UnaryOperator<FileChannel> logChannels) {
+        if (isNull(directory)) {
+            throw new IllegalArgumentException("Journal directory must not be null");
+        }
+        if (snapshotThreshold <= 0) {
+            throw new IllegalArgumentException("Snapshot threshold must be greater than 0");
+        }
+        this.directory = directory;
+        this.snapshotThreshold = snapshotThreshold;
+        this.logChannels = logChannels;
+        this.state = new InMemPaymentRepository();
+
+        try {
+            Files.createDirectories(directory);
+            loadSnapshot();
+            log = logChannels.apply(FileChannel.open(directory.resolve(LOG_FILE), CREATE, READ, WRITE));
+            final long validEnd = replayLog();
+            log.truncate(validEnd);
+            log.position(validEnd);
+            writtenPosition = validEnd;
+            durablePosition = validEnd;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open payment journal in " + directory, e);
+        }
+
+        checkpointer = Executors.newSingleThreadExecutor(task -> {
+            final Thread thread = new Thread(task, "payment-journal-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Optional<Payment> findById(UUID paymentId) {
+        return state.findById(paymentId);
+    }
+
+    @Override
+    public List<Payment> findAll() {
+        return state.findAll();
+    }
+
+    @Override
+    public Stream<Payment> stream() {
+        return state.stream();
+    }
+
+    @Override
+    public List<Payment> findPage(UUID after, int limit) {
+        return state.findPage(after, limit);
+    }
+
+    @Override
+    public List<Payment> findByAmountGreaterThan(double amount) {
+        return state.findByAmountGreaterThan(amount);
+    }
+
+    @Override
+    public Stream<Payment> streamByAmountGreaterThan(double amount) {
+        return state.streamByAmountGreaterThan(amount);
+    }
+
+    @Override
+    public List<Payment> findByUserId(int userId) {
+        return state.findByUserId(userId);
+    }
+
+    @Override
+    public double sumAmountByUser(int userId) {
+        return state.sumAmountByUser(userId);
+    }
+
+    @Override
+    public long countByUser(int userId) {
+        return state.countByUser(userId);
+    }
+
+    @Override
+    public long count() {
+        return state.count();
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        validatePayment(payment);
+
+        final PendingWrite write;
+        writeLock.lock();
+        try {
+            rejectIfSaved(payment.getPaymentId());
+            final ByteBuffer record = allocateSave(payment);
+            record.flip();
+            write = append(record, 1, Collections.singletonMap(payment.getPaymentId(), Optional.of(payment)),
+                () -> state.save(payment));
+        } finally {
+            writeLock.unlock();
+        }
+
+        awaitDurable(write);
+        return payment;
+    }
+
+    @Override
+    public List<Payment> saveAll(List<Payment> payments) {
+        if (isNull(payments)) {
+            throw new IllegalArgumentException("Payments must not be null");
+        }
+        payments.forEach(this::validatePayment);
+
+        final PendingWrite write;
+        writeLock.lock();
+        try {
+            final Map<UUID, Optional<Payment>> changes = new HashMap<>();
+            final List<ByteBuffer> records = new ArrayList<>(payments.size());
+            int batchBytes = 0;
+            for (Payment payment : payments) {
+                rejectIfSaved(payment.getPaymentId());
+                if (nonNull(changes.put(payment.getPaymentId(), Optional.of(payment)))) {
+                    throw new IllegalArgumentException("Payment with id " + payment.getPaymentId() + " already saved");
+                }
+                final ByteBuffer record = allocateSave(payment);
+                batchBytes += record.position();
+                records.add(record);
+            }
+
+            final ByteBuffer batch = ByteBuffer.allocate(batchBytes);
+            for (ByteBuffer record : records) {
+                record.flip();
+                batch.put(record);
+            }
+            batch.flip();
+            write = append(batch, payments.size(), changes, () -> state.saveAll(payments));
+        } finally {
+            writeLock.unlock();
+        }
+
+        awaitDurable(write);
+        return payments;
+    }
+
+    @Override
+    public Payment editMessage(UUID paymentId, String message) {
+        return edit(paymentId, false, 0, message);
+    }
+
+    // writes are serialized to keep the log in order, so the version is checked under the same lock
+    @Override
+    public Payment editMessage(UUID paymentId, long expectedVersion, String message) {
+        return edit(paymentId, true, expectedVersion, message);
+    }
+
+    private Payment edit(UUID paymentId, boolean checkVersion, long expectedVersion, String message) {
+        if (isNull(paymentId)) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+
+        final PendingWrite write;
+        final Payment edited;
+        writeLock.lock();
+        try {
+            final Payment stored = current(paymentId)
+                .orElseThrow(() -> new NoSuchElementException("Payment with id " + paymentId + " not found"));
+            if (checkVersion && stored.getVersion() != expectedVersion) {
+                throw new ConcurrentModificationException(
+                    "Payment with id " + paymentId + " is no longer at version " + expectedVersion);
+            }
+            final byte[] messageBytes = PaymentRecords.encode(message);
+            final ByteBuffer record = startRecord(EDIT,
+                PaymentRecords.UUID_BYTES + Long.BYTES + PaymentRecords.messageSize(messageBytes));
+            PaymentRecords.putUuid(record, paymentId);
+            record.putLong(stored.getVersion() + 1);
+            PaymentRecords.putMessage(record, messageBytes);
+            endRecord(record).flip();
+            edited = stored.withMessage(message);
+            write = append(record, 1, Collections.singletonMap(paymentId, Optional.of(edited)),
+                () -> state.editMessage(paymentId, message));
+        } finally {
+            writeLock.unlock();
+        }
+
+        awaitDurable(write);
+        return edited;
+    }
+
+    @Override
+    public Payment delete(UUID paymentId) {
+        if (isNull(paymentId)) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+
+        final PendingWrite write;
+        final Payment deleted;
+        writeLock.lock();
+        try {
+            deleted = current(paymentId)
+                .orElseThrow(() -> new NoSuchElementException("Payment with id " + paymentId + " not found"));
+            final ByteBuffer record = startRecord(DELETE, PaymentRecords.UUID_BYTES);
+            PaymentRecords.putUuid(record, paymentId);
+            endRecord(record).flip();
+            write = append(record, 1, Collections.singletonMap(paymentId, Optional.empty()),
+                () -> state.delete(paymentId));
+        } finally {
+            writeLock.unlock();
+        }
+
+        awaitDurable(write);
+        return deleted;
+    }
+
+    // snapshots the synced payments; writers are held up only while the records written meanwhile are carried over
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            final List<Payment> payments;
+            final long snapshotEnd;
+            final long snapshotRecords;
+            synchronized (syncLock) {
+                writeLock.lock();
+                try {
+                    throwIfBroken();
+                    payments = state.findAll();
+                    snapshotEnd = durablePosition;
+                    snapshotRecords = recordsSinceSnapshot - unsynced.stream().mapToLong(write -> write.records).sum();
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            try {
+                writeSnapshot(payments);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not checkpoint payment journal in " + directory, e);
+            }
+
+            synchronized (syncLock) {
+                writeLock.lock();
+                try {
+                    throwIfBroken();
+                    replaceLog(snapshotEnd);
+                    recordsSinceSnapshot -= snapshotRecords;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (syncLock) {
+            if (!log.isOpen()) {
+                return;
+            }
+            // callers still waiting for their fsync find their writes settled by this one
+            sync();
+            writeLock.lock();
+            try {
+                log.close();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void validatePayment(Payment payment) {
+        if (isNull(payment)) {
+            throw new IllegalArgumentException("Payment must not be null");
+        }
+        if (isNull(payment.getPaymentId())) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+    }
+
+    private Optional<Payment> current(UUID paymentId) {
+        final Optional<Payment> unsyncedPayment = unsyncedPayments.get(paymentId);
+        return nonNull(unsyncedPayment) ? unsyncedPayment : state.findById(paymentId);
+    }
+
+    private void rejectIfSaved(UUID paymentId) {
+        if (current(paymentId).isPresent()) {
+            throw new IllegalArgumentException("Payment with id " + paymentId + " already saved");
+        }
+    }
+
+    private void throwIfBroken() {
+        if (nonNull(broken)) {
+            throw new IllegalStateException("Payment journal in " + directory + " could not be repaired", broken);
+        }
+    }
+
+    private ByteBuffer allocateSave(Payment payment) {
+        final byte[] messageBytes = PaymentRecords.encode(payment.getMessage());
+        final ByteBuffer record = startRecord(SAVE, PaymentRecords.paymentSize(messageBytes));
+        PaymentRecords.putPayment(record, payment, messageBytes);
+        return endRecord(record);
+    }
+
+    private static ByteBuffer startRecord(byte type, int payloadBytes) {
+        final ByteBuffer record = ByteBuffer.allocate(FRAME_BYTES + 1 + payloadBytes);
+        record.putInt(1 + payloadBytes);
+        record.put(type);
+        return record;
+    }
+
+    private static ByteBuffer endRecord(ByteBuffer record) {
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), Integer.BYTES, record.position() - Integer.BYTES);
+        record.putInt((int) crc.getValue());
+        return record;
+    }
+
+    private PendingWrite append(ByteBuffer records, int recordCount, Map<UUID, Optional<Payment>> changes,
+                                Runnable apply) {
+        throwIfBroken();
+        final long end = writtenPosition + records.remaining();
+        try {
+            while (records.hasRemaining()) {
+                log.write(records);
+            }
+        } catch (IOException e) {
+            // part of the record may have reached the file; cut it off before anything is appended behind it
+            truncateLog(writtenPosition, e);
+            throw new UncheckedIOException("Could not append to payment journal in " + directory, e);
+        }
+        writtenPosition = end;
+        recordsSinceSnapshot += recordCount;
+
+        final PendingWrite write = new PendingWrite(end, recordCount, changes, apply);
+        unsynced.add(write);
+        unsyncedPayments.putAll(changes);
+        checkpointIfDue();
+        return write;
+    }
+
+    private void awaitDurable(PendingWrite write) {
+        synchronized (syncLock) {
+            if (!write.settled) {
+                sync();
+            }
+        }
+        if (nonNull(write.failure)) {
+            throw new UncheckedIOException("Could not sync payment journal in " + directory, write.failure);
+        }
+    }
+
+    // called with syncLock held; settles every write appended before it started, one way or the other
+    private void sync() {
+        final FileChannel channel;
+        final long target;
+        writeLock.lock();
+        try {
+            if (unsynced.isEmpty()) {
+                return;
+            }
+            channel = log;
+            target = writtenPosition;
+        } finally {
+            writeLock.unlock();
+        }
+
+        // everything written so far goes out with this fsync, including records of threads queued behind us
+        IOException failure = null;
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+        }
+
+        writeLock.lock();
+        try {
+            if (nonNull(failure)) {
+                discardUnsynced(failure);
+                return;
+            }
+            durablePosition = target;
+            while (!unsynced.isEmpty() && unsynced.peek().end <= target) {
+                final PendingWrite write = unsynced.poll();
+                write.apply.run();
+                write.changes.forEach((paymentId, change) -> {
+                    if (unsyncedPayments.get(paymentId) == change) {
+                        unsyncedPayments.remove(paymentId);
+                    }
+                });
+                write.settled = true;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // whether an unsynced record reached the disk is unknown after a failed fsync, so none of them is kept
+    private void discardUnsynced(IOException failure) {
+        truncateLog(durablePosition, failure);
+        for (PendingWrite write : unsynced) {
+            recordsSinceSnapshot -= write.records;
+            write.failure = failure;
+            write.settled = true;
+        }
+        unsynced.clear();
+        unsyncedPayments.clear();
+    }
+
+    private void truncateLog(long position, IOException failure) {
+        try {
+            log.truncate(position);
+            log.position(position);
+            writtenPosition = position;
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+            broken = failure;
+        }
+    }
+
+    private void checkpointIfDue() {
+        if (recordsSinceSnapshot >= snapshotThreshold && checkpointQueued.compareAndSet(false, true)) {
+            try {
+                checkpointer.execute(this::checkpointInBackground);
+            } catch (RejectedExecutionException e) {
+                // closing, the snapshot is taken on the next start
+                checkpointQueued.set(false);
+            }
+        }
+    }
+
+    private void checkpointInBackground() {
+        try {
+            checkpoint();
+        } catch (RuntimeException e) {
+            // the log is left as it was and the next write past the threshold tries again
+        } finally {
+            checkpointQueued.set(false);
+        }
+    }
+
+    // carries the records after snapshotEnd over to a new log that takes the place of the old one
+    private void replaceLog(long snapshotEnd) {
+        final Path logFile = directory.resolve(LOG_FILE);
+        final Path temporary = directory.resolve(LOG_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            long position = snapshotEnd;
+            while (position < writtenPosition) {
+                position += log.transferTo(position, writtenPosition - position, channel);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not checkpoint payment journal in " + directory, e);
+        }
+
+        try {
+            Files.move(temporary, logFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not checkpoint payment journal in " + directory, e);
+        }
+        try {
+            final FileChannel previous = log;
+            log = logChannels.apply(FileChannel.open(logFile, READ, WRITE));
+            previous.close();
+            writtenPosition -= snapshotEnd;
+            durablePosition -= snapshotEnd;
+            log.position(writtenPosition);
+            for (PendingWrite write : unsynced) {
+                write.end -= snapshotEnd;
+            }
+        } catch (IOException e) {
+            // the new log is in place but cannot be written, nothing may be acknowledged from here on
+            broken = e;
+            throw new UncheckedIOException("Could not reopen payment journal in " + directory, e);
+        }
+    }
+
+    private void writeSnapshot(List<Payment> payments) throws IOException {
+        final Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        final Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+            header.putInt(SNAPSHOT_MAGIC).putLong(payments.size());
+            header.flip();
+            writeFully(channel, header);
+
+            final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (Payment payment : payments) {
+                final ByteBuffer record = allocateSave(payment);
+                record.flip();
+                if (record.remaining() > buffer.remaining()) {
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
+                if (record.remaining() > buffer.capacity()) {
+                    writeFully(channel, record);
+                } else {
+                    buffer.put(record);
+                }
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        final Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < header.capacity() || header.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Corrupt payment snapshot " + snapshot);
+            }
+            final long count = header.getLong();
+            final long replayed = replay(channel, Integer.BYTES + Long.BYTES);
+            if (replayStopped || state.findAll().size() != count) {
+                throw new IOException("Corrupt payment snapshot " + snapshot + ", expected " + count + " payments");
+            }
+            recordsSinceSnapshot = 0;
+            if (replayed != channel.size()) {
+                throw new IOException("Trailing data in payment snapshot " + snapshot);
+            }
+        }
+    }
+
+    private long replayLog() throws IOException {
+        recordsSinceSnapshot = 0;
+        return replay(log, 0);
+    }
+
+    private long replay(FileChannel channel, long start) throws IOException {
+        replayStopped = false;
+        final long size = channel.size();
+        long position = start;
+        while (position < size) {
+            final long chunk = Math.min(size - position, MAX_MAPPED_CHUNK);
+            final boolean lastChunk = position + chunk == size;
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunk);
+            final int consumed = replayRecords(buffer);
+            position += consumed;
+            // anything left in the last chunk is a record that was only partly written when the process stopped
+            if (replayStopped || lastChunk || consumed == 0) {
+                break;
+            }
+        }
+        return position;
+    }
+
+    private int replayRecords(ByteBuffer buffer) {
+        final CRC32 crc = new CRC32();
+        int consumed = 0;
+        while (buffer.remaining() >= FRAME_BYTES) {
+            final int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - Integer.BYTES) {
+                replayStopped = length <= 0;
+                break;
+            }
+            final ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            buffer.position(buffer.position() + length);
+            if (buffer.getInt() != (int) crc.getValue()) {
+                replayStopped = true;
+                break;
+            }
+            apply(payload);
+            consumed = buffer.position();
+        }
+        return consumed;
+    }
+
+    private void apply(ByteBuffer payload) {
+        final byte type = payload.get();
+        if (type == SAVE || type == UNVERSIONED_SAVE) {
+            final Payment payment = type == SAVE
+                ? PaymentRecords.getPayment(payload)
+                : PaymentRecords.getUnversionedPayment(payload);
+            // a crash between writing a snapshot and truncating the log replays records the snapshot already holds
+            if (!state.findById(payment.getPaymentId()).isPresent()) {
+                state.save(payment);
+            }
+        } else if (type == EDIT) {
+            final UUID paymentId = PaymentRecords.getUuid(payload);
+            final long version = payload.getLong();
+            final String message = PaymentRecords.getMessage(payload);
+            // the same crash window: an edit the snapshot already holds must not raise the version again
+            final Optional<Payment> stored = state.findById(paymentId);
+            if (stored.isPresent() && stored.get().getVersion() < version) {
+                state.editMessage(paymentId, message);
+            }
+        } else if (type == UNVERSIONED_EDIT) {
+            final UUID paymentId = PaymentRecords.getUuid(payload);
+            final String message = PaymentRecords.getMessage(payload);
+            if (state.findById(paymentId).isPresent()) {
+                state.editMessage(paymentId, message);
+            }
+        } else if (type == DELETE) {
+            final UUID paymentId = PaymentRecords.getUuid(payload);
+            if (state.findById(paymentId).isPresent()) {
+                state.delete(paymentId);
+            }
+        } else {
+            throw new IllegalStateException("Unknown journal record type " + type);
+        }
+        recordsSinceSnapshot++;
+    }
+
+    // a save, edit, delete or batch that is in the log but not yet known to be on disk
+    private static final class PendingWrite {
+
+        private final int records;
+
+        private final Map<UUID, Optional<Payment>> changes;
+
+        private final Runnable apply;
+
+        // log position right after the write, moved when a checkpoint replaces the log
+        private long end;
+
+        // set under both locks by the thread that syncs, read under syncLock by the one that appended
+        private boolean settled;
+
+        private IOException failure;
+
+        private PendingWrite(long end, int records, Map<UUID, Optional<Payment>> changes, Runnable apply) {
+            this.end = end;
+            this.records = records;
+            this.changes = changes;
+            this.apply = apply;
+        }
+    }
+}
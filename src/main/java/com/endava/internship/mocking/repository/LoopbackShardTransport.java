@@ -0,0 +1,38 @@
+package com.endava.internship.mocking.repository;
+
+import static java.util.Objects.isNull;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+public class LoopbackShardTransport implements ShardTransport {
+
+    private final Supplier<PaymentRepository> shardFactory;
+
+    private final ConcurrentMap<String, PaymentRepository> shards = new ConcurrentHashMap<>();
+
+    public LoopbackShardTransport() {
+        this(InMemPaymentRepository::new);
+    }
+
+    public LoopbackShardTransport(Supplier<PaymentRepository> shardFactory) {
+        if (isNull(shardFactory)) {
+            throw new IllegalArgumentException("Shard factory must not be null");
+        }
+        this.shardFactory = shardFactory;
+    }
+
+    @Override
+    public PaymentRepository connect(String shardId) {
+        if (isNull(shardId)) {
+            throw new IllegalArgumentException("Shard id must not be null");
+        }
+        return shards.computeIfAbsent(shardId, id -> shardFactory.get());
+    }
+
+    public Optional<PaymentRepository> shard(String shardId) {
+        return Optional.ofNullable(shards.get(shardId));
+    }
+}
@@ -0,0 +1,83 @@
+package com.endava.internship.mocking.repository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Bounded multi-producer single-consumer queue on a power-of-two array. Every slot carries a sequence number that
+ * tells a producer whether the slot is free for its lap and tells the consumer whether the element was published, so
+ * producers only contend on the tail counter and the consumer never takes a lock. Only one thread may drain at a time.
+ */
+final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> elements;
+
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    // written by the draining thread only
+    private volatile long head;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 1 and " + (1 << 30));
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    boolean offer(E element) {
+        while (true) {
+            final long position = tail.get();
+            final int index = (int) position & mask;
+            final long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // the slot still holds an element from the previous lap
+                return false;
+            }
+        }
+    }
+
+    int drainTo(List<? super E> sink, int limit) {
+        long position = head;
+        int drained = 0;
+        while (drained < limit) {
+            final int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            sink.add(elements.get(index));
+            elements.lazySet(index, null);
+            sequences.lazySet(index, position + mask + 1);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    int size() {
+        final long consumed = head;
+        return (int) Math.max(0, Math.min(capacity(), tail.get() - consumed));
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,127 @@
+package com.endava.internship.mocking.repository;
+
+import static java.util.Objects.isNull;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import com.endava.internship.mocking.model.Payment;
+
+/*
+ * Publishes every successful write of the wrapped repository to the registered listeners. Listeners are called on
+ * the writer's thread after the write is visible in the delegate, so they must be quick and must not throw.
+ */
+public class ObservablePaymentRepository implements PaymentRepository {
+
+    private final PaymentRepository delegate;
+
+    private final List<PaymentListener> listeners = new CopyOnWriteArrayList<>();
+
+    public ObservablePaymentRepository(PaymentRepository delegate) {
+        if (isNull(delegate)) {
+            throw new IllegalArgumentException("Payment repository must not be null");
+        }
+        this.delegate = delegate;
+    }
+
+    public void addListener(PaymentListener listener) {
+        if (isNull(listener)) {
+            throw new IllegalArgumentException("Payment listener must not be null");
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(PaymentListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public Optional<Payment> findById(UUID paymentId) {
+        return delegate.findById(paymentId);
+    }
+
+    @Override
+    public List<Payment> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Payment> stream() {
+        return delegate.stream();
+    }
+
+    @Override
+    public List<Payment> findPage(UUID after, int limit) {
+        return delegate.findPage(after, limit);
+    }
+
+    @Override
+    public List<Payment> findByAmountGreaterThan(double amount) {
+        return delegate.findByAmountGreaterThan(amount);
+    }
+
+    @Override
+    public Stream<Payment> streamByAmountGreaterThan(double amount) {
+        return delegate.streamByAmountGreaterThan(amount);
+    }
+
+    @Override
+    public List<Payment> findByUserId(int userId) {
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public double sumAmountByUser(int userId) {
+        return delegate.sumAmountByUser(userId);
+    }
+
+    @Override
+    public long countByUser(int userId) {
+        return delegate.countByUser(userId);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        final Payment saved = delegate.save(payment);
+        listeners.forEach(listener -> listener.onSaved(saved));
+        return saved;
+    }
+
+    @Override
+    public List<Payment> saveAll(List<Payment> payments) {
+        final List<Payment> saved = delegate.saveAll(payments);
+        for (PaymentListener listener : listeners) {
+            saved.forEach(listener::onSaved);
+        }
+        return saved;
+    }
+
+    @Override
+    public Payment editMessage(UUID paymentId, String message) {
+        final Payment edited = delegate.editMessage(paymentId, message);
+        listeners.forEach(listener -> listener.onEdited(edited));
+        return edited;
+    }
+
+    @Override
+    public Payment editMessage(UUID paymentId, long expectedVersion, String message) {
+        final Payment edited = delegate.editMessage(paymentId, expectedVersion, message);
+        listeners.forEach(listener -> listener.onEdited(edited));
+        return edited;
+    }
+
+    @Override
+    public Payment delete(UUID paymentId) {
+        final Payment deleted = delegate.delete(paymentId);
+        listeners.forEach(listener -> listener.onDeleted(deleted));
+        return deleted;
+    }
+}
@@ -0,0 +1,783 @@
+package com.endava.internship.mocking.repository;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.endava.internship.mocking.model.Payment;
+
+/*
+ * Keeps payments outside the Java heap, one direct buffer per field, so the GC sees a handful of
+ * buffers instead of one object graph per payment. Messages are UTF-8 encoded into an append-only
+ * arena; an edit appends the new text and the old bytes are reclaimed when the arena is compacted.
+ * A live row never moves, so a batched scan sees every payment that stays saved while it runs: a delete leaves a
+ * dead row behind and the next save takes it over. Besides the hash index, an id-ordered index serves the pages;
+ * its deleted entries are kept as tombstones and squeezed out once they make up half of it.
+ */
+public class OffHeapPaymentRepository implements PaymentRepository {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int NO_MESSAGE = -1;
+
+    // in the message length column, marks a deleted row whose offset links to the next free one
+    private static final int DEAD_ROW = -2;
+
+    private static final int NO_ROW = -1;
+
+    private static final int EMPTY_SLOT = 0;
+
+    private static final int SCAN_BATCH = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private LongBuffer idMostSigBits;
+
+    private LongBuffer idLeastSigBits;
+
+    private IntBuffer userIds;
+
+    private DoubleBuffer amounts;
+
+    private LongBuffer versions;
+
+    private IntBuffer messageOffsets;
+
+    private IntBuffer messageLengths;
+
+    // open-addressing index from payment id to row number + 1, zero marks a free bucket
+    private IntBuffer idIndex;
+
+    // row numbers in payment id order; a deleted entry keeps its id and gets NO_ROW
+    private LongBuffer orderMostSigBits;
+
+    private LongBuffer orderLeastSigBits;
+
+    private IntBuffer orderRows;
+
+    private int orderSize;
+
+    private int orderTombstones;
+
+    private ByteBuffer messageArena;
+
+    private int garbageBytes;
+
+    // rows in use, dead ones included
+    private int rows;
+
+    private int freeRow = NO_ROW;
+
+    private int size;
+
+    public OffHeapPaymentRepository() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OffHeapPaymentRepository(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be greater than 0");
+        }
+        allocateColumns(initialCapacity);
+        idIndex = allocate(Math.multiplyExact(indexCapacityFor(initialCapacity), Integer.BYTES)).asIntBuffer();
+        allocateOrder(initialCapacity);
+        messageArena = allocate(Math.multiplyExact(initialCapacity, 32));
+    }
+
+    @Override
+    public Optional<Payment> findById(UUID paymentId) {
+        if (isNull(paymentId)) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+        lock.readLock().lock();
+        try {
+            final int row = rowOf(paymentId.getMostSignificantBits(), paymentId.getLeastSignificantBits());
+            return row < 0 ? Optional.empty() : Optional.of(read(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Payment> findAll() {
+        lock.readLock().lock();
+        try {
+            final List<Payment> payments = new ArrayList<>(size);
+            for (int row = 0; row < rows; row++) {
+                if (isLive(row)) {
+                    payments.add(read(row));
+                }
+            }
+            return payments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Stream<Payment> stream() {
+        return StreamSupport.stream(new RowSpliterator(0, rows(), row -> true), false);
+    }
+
+    @Override
+    public List<Payment> findPage(UUID after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be greater than 0");
+        }
+
+        lock.readLock().lock();
+        try {
+            final List<Payment> payments = new ArrayList<>(Math.min(limit, size));
+            int entry = isNull(after)
+                ? 0
+                : orderPosition(after.getMostSignificantBits(), after.getLeastSignificantBits(), false);
+            for (; entry < orderSize && payments.size() < limit; entry++) {
+                final int row = orderRows.get(entry);
+                if (row != NO_ROW) {
+                    payments.add(read(row));
+                }
+            }
+            return payments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Stream<Payment> streamByAmountGreaterThan(double amount) {
+        return StreamSupport.stream(new RowSpliterator(0, rows(), row -> amounts.get(row) > amount), false);
+    }
+
+    @Override
+    public List<Payment> findByAmountGreaterThan(double amount) {
+        lock.readLock().lock();
+        try {
+            final List<Payment> payments = new ArrayList<>();
+            final DoubleBuffer amounts = this.amounts;
+            for (int row = 0; row < rows; row++) {
+                if (amounts.get(row) > amount && isLive(row)) {
+                    payments.add(read(row));
+                }
+            }
+            return payments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Payment> findByUserId(int userId) {
+        lock.readLock().lock();
+        try {
+            final List<Payment> payments = new ArrayList<>();
+            final IntBuffer userIds = this.userIds;
+            for (int row = 0; row < rows; row++) {
+                if (userIds.get(row) == userId && isLive(row)) {
+                    payments.add(read(row));
+                }
+            }
+            return payments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public double sumAmountByUser(int userId) {
+        lock.readLock().lock();
+        try {
+            double total = 0;
+            for (int row = 0; row < rows; row++) {
+                if (userIds.get(row) == userId && isLive(row)) {
+                    total += amounts.get(row);
+                }
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long countByUser(int userId) {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (int row = 0; row < rows; row++) {
+                if (userIds.get(row) == userId && isLive(row)) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        return size();
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        validatePayment(payment);
+
+        lock.writeLock().lock();
+        try {
+            rejectIfSaved(payment.getPaymentId());
+            append(payment);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return payment;
+    }
+
+    @Override
+    public List<Payment> saveAll(List<Payment> payments) {
+        if (isNull(payments)) {
+            throw new IllegalArgumentException("Payments must not be null");
+        }
+        payments.forEach(this::validatePayment);
+
+        lock.writeLock().lock();
+        try {
+            final Set<UUID> batchIds = new HashSet<>();
+            for (Payment payment : payments) {
+                rejectIfSaved(payment.getPaymentId());
+                if (!batchIds.add(payment.getPaymentId())) {
+                    throw new IllegalArgumentException("Payment with id " + payment.getPaymentId() + " already saved");
+                }
+            }
+            ensureCapacity(rows + payments.size());
+            payments.forEach(this::append);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return payments;
+    }
+
+    @Override
+    public Payment editMessage(UUID paymentId, String message) {
+        if (isNull(paymentId)) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+
+        lock.writeLock().lock();
+        try {
+            return rewriteMessage(requireRow(paymentId), message);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the message arena is shared by all rows, so the version is compared under the same write lock
+    @Override
+    public Payment editMessage(UUID paymentId, long expectedVersion, String message) {
+        if (isNull(paymentId)) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+
+        lock.writeLock().lock();
+        try {
+            final int row = requireRow(paymentId);
+            if (versions.get(row) != expectedVersion) {
+                throw new ConcurrentModificationException(
+                    "Payment with id " + paymentId + " is no longer at version " + expectedVersion);
+            }
+            return rewriteMessage(row, message);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the row is only marked dead, moving another one into it would hide that payment from a scan already past it
+    @Override
+    public Payment delete(UUID paymentId) {
+        if (isNull(paymentId)) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+
+        lock.writeLock().lock();
+        try {
+            final int bucket = bucketOf(paymentId.getMostSignificantBits(), paymentId.getLeastSignificantBits());
+            if (bucket < 0) {
+                throw new NoSuchElementException("Payment with id " + paymentId + " not found");
+            }
+            final int row = idIndex.get(bucket) - 1;
+            final Payment deleted = read(row);
+            garbageBytes += Math.max(0, messageLengths.get(row));
+            unindexBucket(bucket);
+            unorder(paymentId.getMostSignificantBits(), paymentId.getLeastSignificantBits());
+
+            messageLengths.put(row, DEAD_ROW);
+            messageOffsets.put(row, freeRow);
+            freeRow = row;
+            size--;
+            return deleted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int rows() {
+        lock.readLock().lock();
+        try {
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isLive(int row) {
+        return messageLengths.get(row) != DEAD_ROW;
+    }
+
+    private void validatePayment(Payment payment) {
+        if (isNull(payment)) {
+            throw new IllegalArgumentException("Payment must not be null");
+        }
+        if (isNull(payment.getPaymentId())) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+    }
+
+    private void rejectIfSaved(UUID paymentId) {
+        if (rowOf(paymentId.getMostSignificantBits(), paymentId.getLeastSignificantBits()) >= 0) {
+            throw new IllegalArgumentException("Payment with id " + paymentId + " already saved");
+        }
+    }
+
+    private int requireRow(UUID paymentId) {
+        final int row = rowOf(paymentId.getMostSignificantBits(), paymentId.getLeastSignificantBits());
+        if (row < 0) {
+            throw new NoSuchElementException("Payment with id " + paymentId + " not found");
+        }
+        return row;
+    }
+
+    private Payment rewriteMessage(int row, String message) {
+        garbageBytes += Math.max(0, messageLengths.get(row));
+        messageLengths.put(row, NO_MESSAGE);
+        writeMessage(row, message);
+        versions.put(row, versions.get(row) + 1);
+        return read(row);
+    }
+
+    private void append(Payment payment) {
+        final int row;
+        if (freeRow != NO_ROW) {
+            row = freeRow;
+            freeRow = messageOffsets.get(row);
+        } else {
+            ensureCapacity(rows + 1);
+            row = rows++;
+        }
+        final long mostSigBits = payment.getPaymentId().getMostSignificantBits();
+        final long leastSigBits = payment.getPaymentId().getLeastSignificantBits();
+        idMostSigBits.put(row, mostSigBits);
+        idLeastSigBits.put(row, leastSigBits);
+        userIds.put(row, payment.getUserId());
+        amounts.put(row, payment.getAmount());
+        versions.put(row, payment.getVersion());
+        writeMessage(row, payment.getMessage());
+        indexRow(idIndex, mostSigBits, leastSigBits, row);
+        order(mostSigBits, leastSigBits, row);
+        size++;
+    }
+
+    private Payment read(int row) {
+        final UUID paymentId = new UUID(idMostSigBits.get(row), idLeastSigBits.get(row));
+        return Payment.of(paymentId, userIds.get(row), amounts.get(row), readMessage(row), versions.get(row));
+    }
+
+    private String readMessage(int row) {
+        final int length = messageLengths.get(row);
+        if (length == NO_MESSAGE) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        final ByteBuffer view = messageArena.duplicate();
+        view.position(messageOffsets.get(row));
+        view.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private void writeMessage(int row, String message) {
+        if (isNull(message)) {
+            messageOffsets.put(row, 0);
+            messageLengths.put(row, NO_MESSAGE);
+            return;
+        }
+        final byte[] bytes = message.getBytes(UTF_8);
+        ensureArenaSpace(bytes.length);
+        messageOffsets.put(row, messageArena.position());
+        messageLengths.put(row, bytes.length);
+        messageArena.put(bytes);
+    }
+
+    private int rowOf(long mostSigBits, long leastSigBits) {
+        final int bucket = bucketOf(mostSigBits, leastSigBits);
+        return bucket < 0 ? -1 : idIndex.get(bucket) - 1;
+    }
+
+    private int bucketOf(long mostSigBits, long leastSigBits) {
+        final int mask = idIndex.capacity() - 1;
+        for (int bucket = hash(mostSigBits, leastSigBits) & mask; ; bucket = (bucket + 1) & mask) {
+            final int entry = idIndex.get(bucket);
+            if (entry == EMPTY_SLOT) {
+                return -1;
+            }
+            final int row = entry - 1;
+            if (idMostSigBits.get(row) == mostSigBits && idLeastSigBits.get(row) == leastSigBits) {
+                return bucket;
+            }
+        }
+    }
+
+    // backward shift deletion: later entries of the probe chain move up so no lookup ever stops at the hole
+    private void unindexBucket(int bucket) {
+        final int mask = idIndex.capacity() - 1;
+        int hole = bucket;
+        for (int next = (hole + 1) & mask; ; next = (next + 1) & mask) {
+            final int entry = idIndex.get(next);
+            if (entry == EMPTY_SLOT) {
+                break;
+            }
+            final int home = hash(idMostSigBits.get(entry - 1), idLeastSigBits.get(entry - 1)) & mask;
+            final boolean reachableFromHome = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!reachableFromHome) {
+                idIndex.put(hole, entry);
+                hole = next;
+            }
+        }
+        idIndex.put(hole, EMPTY_SLOT);
+    }
+
+    private static void indexRow(IntBuffer index, long mostSigBits, long leastSigBits, int row) {
+        final int mask = index.capacity() - 1;
+        int bucket = hash(mostSigBits, leastSigBits) & mask;
+        while (index.get(bucket) != EMPTY_SLOT) {
+            bucket = (bucket + 1) & mask;
+        }
+        index.put(bucket, row + 1);
+    }
+
+    // ids from a time-ordered generator arrive in order, so this nearly always appends
+    private void order(long mostSigBits, long leastSigBits, int row) {
+        final int position = orderPosition(mostSigBits, leastSigBits, true);
+        if (position > 0 && orderRows.get(position - 1) == NO_ROW) {
+            putOrderEntry(position - 1, mostSigBits, leastSigBits, row);
+            orderTombstones--;
+            return;
+        }
+        if (position < orderSize && orderRows.get(position) == NO_ROW) {
+            putOrderEntry(position, mostSigBits, leastSigBits, row);
+            orderTombstones--;
+            return;
+        }
+
+        // shift the entries up to the next tombstone, or up to the end, one place to the right
+        int gap = position;
+        while (gap < orderSize && orderRows.get(gap) != NO_ROW) {
+            gap++;
+        }
+        if (gap == orderSize) {
+            ensureOrderCapacity(orderSize + 1);
+            orderSize++;
+        } else {
+            orderTombstones--;
+        }
+        for (int entry = gap; entry > position; entry--) {
+            putOrderEntry(entry, orderMostSigBits.get(entry - 1), orderLeastSigBits.get(entry - 1),
+                orderRows.get(entry - 1));
+        }
+        putOrderEntry(position, mostSigBits, leastSigBits, row);
+    }
+
+    private void unorder(long mostSigBits, long leastSigBits) {
+        int entry = orderPosition(mostSigBits, leastSigBits, true);
+        // a tombstone of an earlier payment with the same id may come first
+        while (orderRows.get(entry) == NO_ROW) {
+            entry++;
+        }
+        orderRows.put(entry, NO_ROW);
+        orderTombstones++;
+        if (orderTombstones > orderSize / 2) {
+            compactOrder();
+        }
+    }
+
+    private void compactOrder() {
+        int live = 0;
+        for (int entry = 0; entry < orderSize; entry++) {
+            final int row = orderRows.get(entry);
+            if (row != NO_ROW) {
+                putOrderEntry(live++, orderMostSigBits.get(entry), orderLeastSigBits.get(entry), row);
+            }
+        }
+        orderSize = live;
+        orderTombstones = 0;
+    }
+
+    // the first entry whose id is greater than the given one, or with orEqual the first one not less than it
+    private int orderPosition(long mostSigBits, long leastSigBits, boolean orEqual) {
+        int low = 0;
+        int high = orderSize;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            int order = Long.compare(orderMostSigBits.get(middle), mostSigBits);
+            if (order == 0) {
+                order = Long.compare(orderLeastSigBits.get(middle), leastSigBits);
+            }
+            if (order > 0 || order == 0 && orEqual) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void putOrderEntry(int entry, long mostSigBits, long leastSigBits, int row) {
+        orderMostSigBits.put(entry, mostSigBits);
+        orderLeastSigBits.put(entry, leastSigBits);
+        orderRows.put(entry, row);
+    }
+
+    private void ensureOrderCapacity(int required) {
+        final int capacity = orderRows.capacity();
+        if (required <= capacity) {
+            return;
+        }
+        final LongBuffer oldMostSigBits = orderMostSigBits;
+        final LongBuffer oldLeastSigBits = orderLeastSigBits;
+        final IntBuffer oldRows = orderRows;
+        allocateOrder(Math.multiplyExact(capacity, 2));
+        for (int entry = 0; entry < orderSize; entry++) {
+            putOrderEntry(entry, oldMostSigBits.get(entry), oldLeastSigBits.get(entry), oldRows.get(entry));
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        final int capacity = amounts.capacity();
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = capacity;
+        while (newCapacity < required) {
+            newCapacity = Math.multiplyExact(newCapacity, 2);
+        }
+
+        final LongBuffer oldMostSigBits = idMostSigBits;
+        final LongBuffer oldLeastSigBits = idLeastSigBits;
+        final IntBuffer oldUserIds = userIds;
+        final DoubleBuffer oldAmounts = amounts;
+        final LongBuffer oldVersions = versions;
+        final IntBuffer oldMessageOffsets = messageOffsets;
+        final IntBuffer oldMessageLengths = messageLengths;
+        allocateColumns(newCapacity);
+        idMostSigBits.put(slice(oldMostSigBits)).clear();
+        idLeastSigBits.put(slice(oldLeastSigBits)).clear();
+        userIds.put(slice(oldUserIds)).clear();
+        amounts.put(slice(oldAmounts)).clear();
+        versions.put(slice(oldVersions)).clear();
+        messageOffsets.put(slice(oldMessageOffsets)).clear();
+        messageLengths.put(slice(oldMessageLengths)).clear();
+
+        final IntBuffer index = allocate(Math.multiplyExact(indexCapacityFor(newCapacity), Integer.BYTES)).asIntBuffer();
+        for (int row = 0; row < rows; row++) {
+            if (isLive(row)) {
+                indexRow(index, idMostSigBits.get(row), idLeastSigBits.get(row), row);
+            }
+        }
+        idIndex = index;
+    }
+
+    private LongBuffer slice(LongBuffer column) {
+        final LongBuffer view = column.duplicate();
+        view.limit(rows);
+        return view;
+    }
+
+    private IntBuffer slice(IntBuffer column) {
+        final IntBuffer view = column.duplicate();
+        view.limit(rows);
+        return view;
+    }
+
+    private DoubleBuffer slice(DoubleBuffer column) {
+        final DoubleBuffer view = column.duplicate();
+        view.limit(rows);
+        return view;
+    }
+
+    private void ensureArenaSpace(int length) {
+        if (messageArena.remaining() >= length) {
+            return;
+        }
+        final int liveBytes = messageArena.position() - garbageBytes;
+        long newCapacity = messageArena.capacity();
+        while (newCapacity - liveBytes < length) {
+            newCapacity *= 2;
+        }
+        if (newCapacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Message arena is full");
+        }
+
+        // copy only the live messages, which drops the bytes left behind by edits
+        final ByteBuffer arena = allocate((int) newCapacity);
+        final ByteBuffer source = messageArena.duplicate();
+        for (int row = 0; row < rows; row++) {
+            final int messageLength = messageLengths.get(row);
+            if (messageLength < 0) {
+                continue;
+            }
+            final int offset = messageOffsets.get(row);
+            source.limit(offset + messageLength).position(offset);
+            messageOffsets.put(row, arena.position());
+            arena.put(source);
+        }
+        messageArena = arena;
+        garbageBytes = 0;
+    }
+
+    private void allocateOrder(int capacity) {
+        orderMostSigBits = allocate(Math.multiplyExact(capacity, Long.BYTES)).asLongBuffer();
+        orderLeastSigBits = allocate(Math.multiplyExact(capacity, Long.BYTES)).asLongBuffer();
+        orderRows = allocate(Math.multiplyExact(capacity, Integer.BYTES)).asIntBuffer();
+    }
+
+    private void allocateColumns(int capacity) {
+        idMostSigBits = allocate(Math.multiplyExact(capacity, Long.BYTES)).asLongBuffer();
+        idLeastSigBits = allocate(Math.multiplyExact(capacity, Long.BYTES)).asLongBuffer();
+        userIds = allocate(Math.multiplyExact(capacity, Integer.BYTES)).asIntBuffer();
+        amounts = allocate(Math.multiplyExact(capacity, Double.BYTES)).asDoubleBuffer();
+        versions = allocate(Math.multiplyExact(capacity, Long.BYTES)).asLongBuffer();
+        messageOffsets = allocate(Math.multiplyExact(capacity, Integer.BYTES)).asIntBuffer();
+        messageLengths = allocate(Math.multiplyExact(capacity, Integer.BYTES)).asIntBuffer();
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static int indexCapacityFor(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private static int hash(long mostSigBits, long leastSigBits) {
+        final long h = (mostSigBits ^ leastSigBits) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // walks a fixed range of rows, taking the read lock once per batch so a long scan never blocks writers for long;
+    // estimates count dead rows too
+    private final class RowSpliterator implements Spliterator<Payment> {
+
+        private final IntPredicate rowFilter;
+
+        private int row;
+
+        private final int end;
+
+        private RowSpliterator(int row, int end, IntPredicate rowFilter) {
+            this.row = row;
+            this.end = end;
+            this.rowFilter = rowFilter;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Payment> action) {
+            lock.readLock().lock();
+            Payment payment = null;
+            try {
+                while (isNull(payment) && row < end) {
+                    if (isLive(row) && rowFilter.test(row)) {
+                        payment = read(row);
+                    }
+                    row++;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (isNull(payment)) {
+                return false;
+            }
+            action.accept(payment);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Payment> action) {
+            final List<Payment> batch = new ArrayList<>();
+            while (row < end) {
+                final int batchEnd = Math.min(end, row + SCAN_BATCH);
+                lock.readLock().lock();
+                try {
+                    // rows are never given back, only marked dead, so the range stays valid for the whole scan
+                    for (; row < batchEnd; row++) {
+                        if (isLive(row) && rowFilter.test(row)) {
+                            batch.add(read(row));
+                        }
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                batch.forEach(action);
+                batch.clear();
+            }
+        }
+
+        @Override
+        public Spliterator<Payment> trySplit() {
+            final int middle = (row + end) >>> 1;
+            if (middle - row < SCAN_BATCH) {
+                return null;
+            }
+            final Spliterator<Payment> prefix = new RowSpliterator(row, middle, rowFilter);
+            row = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - row;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
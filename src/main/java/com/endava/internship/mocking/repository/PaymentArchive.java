@@ -0,0 +1,316 @@
+package com.endava.internship.mocking.repository;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.isNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import com.endava.internship.mocking.model.Payment;
+
+/*
+ * Bulk import and export of a payment repository. The binary format is a header followed by the payments in the
+ * same layout the journal uses, streamed through one reusable direct buffer so neither side ever holds the whole
+ * file. Imports are stored in batches through saveAll; a batch that is refused for a duplicate id is replayed one
+ * payment at a time so that only the duplicates are skipped. CSV is supported as the slow, human readable path.
+ */
+public class PaymentArchive {
+
+    // "PAY2", records carry the payment version
+    private static final int MAGIC = 0x50415932;
+
+    // "PAY1", written before payments had a version, imported at version 0 as the journal replays them
+    private static final int UNVERSIONED_MAGIC = 0x50415931;
+
+    private static final int HEADER_BYTES = Integer.BYTES;
+
+    private static final int FIXED_RECORD_BYTES = PaymentRecords.paymentSize(null);
+
+    private static final int UNVERSIONED_FIXED_RECORD_BYTES = PaymentRecords.unversionedPaymentSize(null);
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final int BATCH_SIZE = 4096;
+
+    private static final String CSV_HEADER = "paymentId,userId,amount,version,message";
+
+    // files exported before the version column are imported at version 0
+    private static final String UNVERSIONED_CSV_HEADER = "paymentId,userId,amount,message";
+
+    private final PaymentRepository repository;
+
+    private final int bufferSize;
+
+    public PaymentArchive(PaymentRepository repository) {
+        this(repository, DEFAULT_BUFFER_SIZE);
+    }
+
+    PaymentArchive(PaymentRepository repository, int bufferSize) {
+        if (isNull(repository)) {
+            throw new IllegalArgumentException("Payment repository must not be null");
+        }
+        this.repository = repository;
+        this.bufferSize = Math.max(bufferSize, FIXED_RECORD_BYTES);
+    }
+
+    public long exportBinary(Path file) {
+        try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING);
+             Stream<Payment> payments = repository.stream()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+            buffer.putInt(MAGIC);
+
+            long exported = 0;
+            for (Iterator<Payment> iterator = payments.iterator(); iterator.hasNext(); exported++) {
+                final Payment payment = iterator.next();
+                final byte[] message = PaymentRecords.encode(payment.getMessage());
+                final int size = PaymentRecords.paymentSize(message);
+                if (size > buffer.remaining()) {
+                    drain(channel, buffer);
+                    if (size > buffer.capacity()) {
+                        buffer = ByteBuffer.allocateDirect(size);
+                    }
+                }
+                PaymentRecords.putPayment(buffer, payment, message);
+            }
+            drain(channel, buffer);
+            return exported;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not export payments to " + file, e);
+        }
+    }
+
+    public PaymentImportResult importBinary(Path file) {
+        final Loader loader = new Loader();
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+            buffer.limit(0);
+            final int magic = fill(channel, buffer, HEADER_BYTES) ? buffer.getInt() : 0;
+            if (magic != MAGIC && magic != UNVERSIONED_MAGIC) {
+                throw new IllegalStateException("Not a payment archive: " + file);
+            }
+            final boolean versioned = magic == MAGIC;
+            final int fixedRecordBytes = versioned ? FIXED_RECORD_BYTES : UNVERSIONED_FIXED_RECORD_BYTES;
+
+            while (true) {
+                if (!fill(channel, buffer, fixedRecordBytes)) {
+                    break;
+                }
+                final int messageBytes = Math.max(0, buffer.getInt(buffer.position() + fixedRecordBytes - Integer.BYTES));
+                final int size = fixedRecordBytes + messageBytes;
+                if (size > buffer.capacity()) {
+                    buffer = grow(buffer, size);
+                }
+                if (!fill(channel, buffer, size)) {
+                    throw new IllegalStateException("Truncated payment archive: " + file);
+                }
+                loader.add(versioned ? PaymentRecords.getPayment(buffer) : PaymentRecords.getUnversionedPayment(buffer));
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalStateException("Truncated payment archive: " + file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not import payments from " + file, e);
+        }
+        return loader.finish();
+    }
+
+    public long exportCsv(Path file) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8);
+             Stream<Payment> payments = repository.stream()) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+
+            long exported = 0;
+            for (Iterator<Payment> iterator = payments.iterator(); iterator.hasNext(); exported++) {
+                final Payment payment = iterator.next();
+                writer.write(payment.getPaymentId() + "," + payment.getUserId() + "," + payment.getAmount() + ","
+                    + payment.getVersion() + ",");
+                if (!isNull(payment.getMessage())) {
+                    writer.write('"' + payment.getMessage().replace("\"", "\"\"") + '"');
+                }
+                writer.newLine();
+            }
+            return exported;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not export payments to " + file, e);
+        }
+    }
+
+    public PaymentImportResult importCsv(Path file) {
+        final Loader loader = new Loader();
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            List<String> fields = readCsvRecord(reader);
+            final String header = isNull(fields) ? null : String.join(",", fields);
+            if (!CSV_HEADER.equals(header) && !UNVERSIONED_CSV_HEADER.equals(header)) {
+                throw new IllegalStateException("Missing payment CSV header in " + file);
+            }
+            final boolean versioned = CSV_HEADER.equals(header);
+            final int fieldCount = versioned ? 5 : 4;
+
+            long line = 1;
+            while (!isNull(fields = readCsvRecord(reader))) {
+                line++;
+                if (fields.size() != fieldCount) {
+                    throw new IllegalStateException("Expected " + fieldCount + " fields in record " + line + " of " + file);
+                }
+                final Payment payment;
+                try {
+                    final long version = versioned ? Long.parseLong(fields.get(3)) : 0;
+                    payment = Payment.of(UUID.fromString(fields.get(0)), Integer.parseInt(fields.get(1)),
+                        Double.parseDouble(fields.get(2)), fields.get(fieldCount - 1), version);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalStateException("Malformed record " + line + " of " + file, e);
+                }
+                loader.add(payment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not import payments from " + file, e);
+        }
+        return loader.finish();
+    }
+
+    // an unquoted empty field reads as null, so null and empty messages survive a round trip
+    private static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        int next = reader.read();
+        if (next == -1) {
+            return null;
+        }
+
+        final List<String> fields = new ArrayList<>(5);
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        while (true) {
+            if (inQuotes) {
+                if (next == -1) {
+                    throw new IllegalStateException("Unterminated quoted field in payment CSV");
+                }
+                if (next == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append((char) next);
+                }
+            } else if (next == '"') {
+                quoted = true;
+                inQuotes = true;
+            } else if (next == ',' || next == '\n' || next == '\r' || next == -1) {
+                fields.add(quoted || field.length() > 0 ? field.toString() : null);
+                field.setLength(0);
+                quoted = false;
+                if (next != ',') {
+                    if (next == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    return fields;
+                }
+            } else {
+                field.append((char) next);
+            }
+            next = reader.read();
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // makes at least the given number of bytes readable, reading more from the channel when needed
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) == -1) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        final ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        grown.put(buffer);
+        grown.flip();
+        return grown;
+    }
+
+    private final class Loader {
+
+        private List<Payment> batch = new ArrayList<>(BATCH_SIZE);
+
+        private long imported;
+
+        private long duplicates;
+
+        void add(Payment payment) {
+            batch.add(payment);
+            if (batch.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        PaymentImportResult finish() {
+            flush();
+            return new PaymentImportResult(imported, duplicates);
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                repository.saveAll(batch);
+                imported += batch.size();
+            } catch (IllegalArgumentException batchRejected) {
+                for (Payment payment : batch) {
+                    save(payment);
+                }
+            }
+            // a fresh list, since a repository is free to keep the one it was given
+            batch = new ArrayList<>(BATCH_SIZE);
+        }
+
+        // only a refusal for an id the repository already holds is a duplicate, anything else is a real failure
+        private void save(Payment payment) {
+            try {
+                repository.save(payment);
+                imported++;
+            } catch (IllegalArgumentException e) {
+                if (isNull(payment.getPaymentId()) || !repository.findById(payment.getPaymentId()).isPresent()) {
+                    throw e;
+                }
+                duplicates++;
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.endava.internship.mocking.repository;
+
+public class PaymentImportResult {
+
+    private final long imported;
+
+    private final long duplicates;
+
+    PaymentImportResult(long imported, long duplicates) {
+        this.imported = imported;
+        this.duplicates = duplicates;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentImportResult{" +
+            "imported=" + imported +
+            ", duplicates=" + duplicates +
+            '}';
+    }
+}
@@ -0,0 +1,11 @@
+package com.endava.internship.mocking.repository;
+
+import com.endava.internship.mocking.model.Payment;
+
+public interface PaymentListener {
+    void onSaved(Payment payment);
+
+    void onEdited(Payment payment);
+
+    void onDeleted(Payment payment);
+}
@@ -0,0 +1,91 @@
+package com.endava.internship.mocking.repository;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import com.endava.internship.mocking.model.Payment;
+
+final class PaymentRecords {
+
+    private static final int NO_MESSAGE = -1;
+
+    static final int UUID_BYTES = 2 * Long.BYTES;
+
+    private PaymentRecords() {
+    }
+
+    static int paymentSize(byte[] message) {
+        return UUID_BYTES + Integer.BYTES + Double.BYTES + Long.BYTES + messageSize(message);
+    }
+
+    static int unversionedPaymentSize(byte[] message) {
+        return paymentSize(message) - Long.BYTES;
+    }
+
+    static int messageSize(byte[] message) {
+        return Integer.BYTES + (isNull(message) ? 0 : message.length);
+    }
+
+    static byte[] encode(String message) {
+        return isNull(message) ? null : message.getBytes(UTF_8);
+    }
+
+    static void putPayment(ByteBuffer buffer, Payment payment, byte[] message) {
+        putUuid(buffer, payment.getPaymentId());
+        buffer.putInt(payment.getUserId());
+        buffer.putDouble(payment.getAmount());
+        buffer.putLong(payment.getVersion());
+        putMessage(buffer, message);
+    }
+
+    static Payment getPayment(ByteBuffer buffer) {
+        final UUID paymentId = getUuid(buffer);
+        final int userId = buffer.getInt();
+        final double amount = buffer.getDouble();
+        final long version = buffer.getLong();
+        return Payment.of(paymentId, userId, amount, getMessage(buffer), version);
+    }
+
+    // layout written before payments carried a version
+    static Payment getUnversionedPayment(ByteBuffer buffer) {
+        final UUID paymentId = getUuid(buffer);
+        final int userId = buffer.getInt();
+        final double amount = buffer.getDouble();
+        return Payment.of(paymentId, userId, amount, getMessage(buffer));
+    }
+
+    static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    static void putMessage(ByteBuffer buffer, byte[] message) {
+        if (isNull(message)) {
+            buffer.putInt(NO_MESSAGE);
+            return;
+        }
+        buffer.putInt(message.length);
+        buffer.put(message);
+    }
+
+    static String getMessage(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length == NO_MESSAGE) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("Corrupt message length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        // the store the record is replayed or imported into pools the message when it saves it
+        return new String(bytes, UTF_8);
+    }
+}
@@ -5,13 +5,36 @@ import com.endava.internship.mocking.model.Payment;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface PaymentRepository {
     Optional<Payment> findById(UUID paymentId);
 
     List<Payment> findAll();
 
+    Stream<Payment> stream();
+
+    List<Payment> findPage(UUID after, int limit);
+
+    List<Payment> findByAmountGreaterThan(double amount);
+
+    Stream<Payment> streamByAmountGreaterThan(double amount);
+
+    List<Payment> findByUserId(int userId);
+
+    double sumAmountByUser(int userId);
+
+    long countByUser(int userId);
+
+    long count();
+
     Payment save(Payment payment);
 
+    List<Payment> saveAll(List<Payment> payments);
+
     Payment editMessage(UUID paymentId, String message);
+
+    Payment editMessage(UUID paymentId, long expectedVersion, String message);
+
+    Payment delete(UUID paymentId);
 }
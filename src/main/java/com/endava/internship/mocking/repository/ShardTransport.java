@@ -0,0 +1,6 @@
+package com.endava.internship.mocking.repository;
+
+// resolves a shard id to something that speaks PaymentRepository, either the shard itself or a client for it
+public interface ShardTransport {
+    PaymentRepository connect(String shardId);
+}
@@ -0,0 +1,509 @@
+package com.endava.internship.mocking.repository;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.endava.internship.mocking.model.Payment;
+
+/*
+ * Spreads payments over shards by consistent hashing of the payment id. Lookups and writes go to the owning shard,
+ * queries over all payments are sent to every shard in parallel and merged. Adding a shard switches to the new
+ * ring at once and then moves the payments it took over in small batches; until that is done, a payment that is
+ * not found on its new owner is looked up on its previous one. Every operation holds the shared side of a lock
+ * whose exclusive side is taken per moved batch, so no caller ever sees a payment on both shards or on neither.
+ * If a move fails, the old ring takes over again and the payments already moved are sent back the same way.
+ */
+public class ShardedPaymentRepository implements PaymentRepository, AutoCloseable {
+
+    private static final int VIRTUAL_NODES = 128;
+
+    private static final int REBALANCE_BATCH = 1024;
+
+    private final ShardTransport transport;
+
+    private final ExecutorService executor;
+
+    private final boolean ownsExecutor;
+
+    private final ReadWriteLock migrationLock = new ReentrantReadWriteLock();
+
+    private volatile Topology topology;
+
+    public ShardedPaymentRepository(ShardTransport transport, Collection<String> shardIds) {
+        this(transport, shardIds, Executors.newCachedThreadPool(task -> {
+            final Thread thread = new Thread(task, "payment-shard-query");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    public ShardedPaymentRepository(ShardTransport transport, Collection<String> shardIds, ExecutorService executor) {
+        this(transport, shardIds, executor, false);
+    }
+
+    private ShardedPaymentRepository(ShardTransport transport, Collection<String> shardIds, ExecutorService executor,
+                                     boolean ownsExecutor) {
+        if (isNull(transport)) {
+            throw new IllegalArgumentException("Shard transport must not be null");
+        }
+        if (isNull(shardIds) || shardIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (isNull(executor)) {
+            throw new IllegalArgumentException("Executor must not be null");
+        }
+        this.transport = transport;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+
+        final Map<String, PaymentRepository> shards = new LinkedHashMap<>();
+        for (String shardId : shardIds) {
+            if (isNull(shardId)) {
+                throw new IllegalArgumentException("Shard id must not be null");
+            }
+            shards.put(shardId, transport.connect(shardId));
+        }
+        topology = new Topology(new HashRing(shards, VIRTUAL_NODES), null);
+    }
+
+    public Set<String> shardIds() {
+        return topology.ring.shardsById().keySet();
+    }
+
+    public synchronized long addShard(String shardId) {
+        if (isNull(shardId)) {
+            throw new IllegalArgumentException("Shard id must not be null");
+        }
+        final HashRing previous = topology.ring;
+        if (previous.contains(shardId)) {
+            throw new IllegalArgumentException("Shard " + shardId + " already added");
+        }
+        final PaymentRepository shard = transport.connect(shardId);
+        final Map<String, PaymentRepository> shards = new LinkedHashMap<>(previous.shardsById());
+        shards.put(shardId, shard);
+        final HashRing next = new HashRing(shards, VIRTUAL_NODES);
+        switchTopology(new Topology(next, previous));
+
+        long moved = 0;
+        try {
+            for (PaymentRepository source : previous.shards()) {
+                // new payments of the moving range already land on the new shard, so this list cannot miss any
+                final List<UUID> leaving;
+                try (Stream<Payment> payments = source.stream()) {
+                    leaving = payments.map(Payment::getPaymentId)
+                        .filter(paymentId -> next.ownerOf(paymentId) == shard)
+                        .collect(toList());
+                }
+                moved += moveAll(source, shard, leaving);
+            }
+        } catch (RuntimeException e) {
+            rollBack(previous, next, shard, e);
+            throw e;
+        }
+
+        switchTopology(new Topology(next, null));
+        return moved;
+    }
+
+    @Override
+    public Optional<Payment> findById(UUID paymentId) {
+        requireId(paymentId);
+        return shared(() -> locate(paymentId).findById(paymentId));
+    }
+
+    @Override
+    public List<Payment> findAll() {
+        return shared(() -> concat(scatter(PaymentRepository::findAll)));
+    }
+
+    // streams are consumed after this call returns, so during a rebalance they are only weakly consistent
+    @Override
+    public Stream<Payment> stream() {
+        return StreamSupport.stream(new ShardSpliterator(topology.ring.shards(), PaymentRepository::stream), false);
+    }
+
+    @Override
+    public List<Payment> findPage(UUID after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be greater than 0");
+        }
+        return shared(() -> concat(scatter(shard -> shard.findPage(after, limit))).stream()
+            .sorted(Comparator.comparing(Payment::getPaymentId))
+            .limit(limit)
+            .collect(toList()));
+    }
+
+    @Override
+    public List<Payment> findByAmountGreaterThan(double amount) {
+        return shared(() -> {
+            final List<Payment> payments = concat(scatter(shard -> shard.findByAmountGreaterThan(amount)));
+            payments.sort(Comparator.comparingDouble(Payment::getAmount));
+            return payments;
+        });
+    }
+
+    @Override
+    public Stream<Payment> streamByAmountGreaterThan(double amount) {
+        return StreamSupport.stream(
+            new ShardSpliterator(topology.ring.shards(), shard -> shard.streamByAmountGreaterThan(amount)), false);
+    }
+
+    @Override
+    public List<Payment> findByUserId(int userId) {
+        return shared(() -> concat(scatter(shard -> shard.findByUserId(userId))));
+    }
+
+    @Override
+    public double sumAmountByUser(int userId) {
+        return shared(() -> scatter(shard -> shard.sumAmountByUser(userId)).stream()
+            .mapToDouble(Double::doubleValue)
+            .sum());
+    }
+
+    @Override
+    public long countByUser(int userId) {
+        return shared(() -> scatter(shard -> shard.countByUser(userId)).stream()
+            .mapToLong(Long::longValue)
+            .sum());
+    }
+
+    @Override
+    public long count() {
+        return shared(() -> scatter(PaymentRepository::count).stream()
+            .mapToLong(Long::longValue)
+            .sum());
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        validatePayment(payment);
+        return shared(() -> {
+            rejectIfOnPreviousOwner(payment.getPaymentId());
+            return topology.ring.ownerOf(payment.getPaymentId()).save(payment);
+        });
+    }
+
+    // each shard stores its part atomically; if one of them refuses, the parts already stored are taken back
+    @Override
+    public List<Payment> saveAll(List<Payment> payments) {
+        if (isNull(payments)) {
+            throw new IllegalArgumentException("Payments must not be null");
+        }
+        payments.forEach(this::validatePayment);
+
+        return shared(() -> {
+            final HashRing ring = topology.ring;
+            final Map<PaymentRepository, List<Payment>> byShard = new LinkedHashMap<>();
+            for (Payment payment : payments) {
+                rejectIfOnPreviousOwner(payment.getPaymentId());
+                byShard.computeIfAbsent(ring.ownerOf(payment.getPaymentId()), shard -> new ArrayList<>()).add(payment);
+            }
+
+            final Map<PaymentRepository, Future<List<Payment>>> pending = new LinkedHashMap<>();
+            byShard.forEach((shard, part) -> pending.put(shard, executor.submit(() -> shard.saveAll(part))));
+            final List<PaymentRepository> stored = new ArrayList<>(pending.size());
+            RuntimeException failure = null;
+            for (Map.Entry<PaymentRepository, Future<List<Payment>>> entry : pending.entrySet()) {
+                try {
+                    await(entry.getValue());
+                    stored.add(entry.getKey());
+                } catch (RuntimeException e) {
+                    failure = isNull(failure) ? e : failure;
+                }
+            }
+            if (nonNull(failure)) {
+                stored.forEach(shard -> byShard.get(shard).forEach(payment -> shard.delete(payment.getPaymentId())));
+                throw failure;
+            }
+            return payments;
+        });
+    }
+
+    @Override
+    public Payment editMessage(UUID paymentId, String message) {
+        requireId(paymentId);
+        return shared(() -> locate(paymentId).editMessage(paymentId, message));
+    }
+
+    @Override
+    public Payment editMessage(UUID paymentId, long expectedVersion, String message) {
+        requireId(paymentId);
+        return shared(() -> locate(paymentId).editMessage(paymentId, expectedVersion, message));
+    }
+
+    @Override
+    public Payment delete(UUID paymentId) {
+        requireId(paymentId);
+        return shared(() -> locate(paymentId).delete(paymentId));
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private PaymentRepository locate(UUID paymentId) {
+        final Topology current = topology;
+        final PaymentRepository owner = current.ring.ownerOf(paymentId);
+        if (isNull(current.previous)) {
+            return owner;
+        }
+        final PaymentRepository previousOwner = current.previous.ownerOf(paymentId);
+        if (previousOwner != owner && !owner.findById(paymentId).isPresent()
+            && previousOwner.findById(paymentId).isPresent()) {
+            return previousOwner;
+        }
+        return owner;
+    }
+
+    private void rejectIfOnPreviousOwner(UUID paymentId) {
+        final Topology current = topology;
+        if (nonNull(current.previous) && current.previous.ownerOf(paymentId) != current.ring.ownerOf(paymentId)
+            && current.previous.ownerOf(paymentId).findById(paymentId).isPresent()) {
+            throw new IllegalArgumentException("Payment with id " + paymentId + " already saved");
+        }
+    }
+
+    // the old ring is in charge again while the new shard empties, and the new one is where lookups fall back to
+    private void rollBack(HashRing previous, HashRing next, PaymentRepository shard, RuntimeException failure) {
+        switchTopology(new Topology(previous, next));
+        try {
+            final Map<PaymentRepository, List<UUID>> returning = new LinkedHashMap<>();
+            try (Stream<Payment> payments = shard.stream()) {
+                payments.map(Payment::getPaymentId).forEach(paymentId ->
+                    returning.computeIfAbsent(previous.ownerOf(paymentId), owner -> new ArrayList<>()).add(paymentId));
+            }
+            returning.forEach((owner, paymentIds) -> moveAll(shard, owner, paymentIds));
+            switchTopology(new Topology(previous, null));
+        } catch (RuntimeException e) {
+            // both rings stay in place, so every payment is still found wherever it is
+            failure.addSuppressed(e);
+        }
+    }
+
+    private long moveAll(PaymentRepository source, PaymentRepository target, List<UUID> paymentIds) {
+        long moved = 0;
+        for (int from = 0; from < paymentIds.size(); from += REBALANCE_BATCH) {
+            final int to = Math.min(paymentIds.size(), from + REBALANCE_BATCH);
+            moved += move(source, target, paymentIds.subList(from, to));
+        }
+        return moved;
+    }
+
+    private int move(PaymentRepository source, PaymentRepository target, List<UUID> paymentIds) {
+        migrationLock.writeLock().lock();
+        try {
+            final List<Payment> payments = new ArrayList<>(paymentIds.size());
+            for (UUID paymentId : paymentIds) {
+                source.findById(paymentId).ifPresent(payments::add);
+            }
+            target.saveAll(payments);
+            payments.forEach(payment -> source.delete(payment.getPaymentId()));
+            return payments.size();
+        } finally {
+            migrationLock.writeLock().unlock();
+        }
+    }
+
+    private void switchTopology(Topology next) {
+        migrationLock.writeLock().lock();
+        try {
+            topology = next;
+        } finally {
+            migrationLock.writeLock().unlock();
+        }
+    }
+
+    private <T> T shared(Supplier<T> operation) {
+        migrationLock.readLock().lock();
+        try {
+            return operation.get();
+        } finally {
+            migrationLock.readLock().unlock();
+        }
+    }
+
+    private <T> List<T> scatter(Function<PaymentRepository, T> query) {
+        final Collection<PaymentRepository> shards = topology.ring.shards();
+        if (shards.size() == 1) {
+            return Collections.singletonList(query.apply(shards.iterator().next()));
+        }
+
+        final List<Future<T>> pending = new ArrayList<>(shards.size());
+        shards.forEach(shard -> pending.add(executor.submit(() -> query.apply(shard))));
+        final List<T> results = new ArrayList<>(shards.size());
+        for (Future<T> result : pending) {
+            results.add(await(result));
+        }
+        return results;
+    }
+
+    private static <T> T await(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Shard failed", e.getCause());
+        }
+    }
+
+    private static List<Payment> concat(List<List<Payment>> parts) {
+        final List<Payment> payments = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(payments::addAll);
+        return payments;
+    }
+
+    private static void requireId(UUID paymentId) {
+        if (isNull(paymentId)) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+    }
+
+    private void validatePayment(Payment payment) {
+        if (isNull(payment)) {
+            throw new IllegalArgumentException("Payment must not be null");
+        }
+        requireId(payment.getPaymentId());
+    }
+
+    private static final class Topology {
+
+        private final HashRing ring;
+
+        // the ring payments may still be found on: the one before the last added shard until all of its payments
+        // have moved, or the one with it while a failed move is rolled back
+        private final HashRing previous;
+
+        private Topology(HashRing ring, HashRing previous) {
+            this.ring = ring;
+            this.previous = previous;
+        }
+    }
+
+    /*
+     * Concatenates the streams of the shards and opens each one only when it is reached. A split hands over half of
+     * the shards not started yet; once a single shard is left, the split goes to that shard's own spliterator, so a
+     * parallel scan reads every shard at the same time and still divides the work within each of them.
+     */
+    private static final class ShardSpliterator implements Spliterator<Payment> {
+
+        private final List<PaymentRepository> shards;
+
+        private final Function<PaymentRepository, Stream<Payment>> scan;
+
+        private int index;
+
+        private final int fence;
+
+        // the shard being read, opened before any of shards[index, fence)
+        private Spliterator<Payment> current;
+
+        private ShardSpliterator(Collection<PaymentRepository> shards,
+                                 Function<PaymentRepository, Stream<Payment>> scan) {
+            this(new ArrayList<>(shards), scan, 0, shards.size(), null);
+        }
+
+        private ShardSpliterator(List<PaymentRepository> shards, Function<PaymentRepository, Stream<Payment>> scan,
+                                 int index, int fence, Spliterator<Payment> current) {
+            this.shards = shards;
+            this.scan = scan;
+            this.index = index;
+            this.fence = fence;
+            this.current = current;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Payment> action) {
+            while (true) {
+                if (nonNull(current) && current.tryAdvance(action)) {
+                    return true;
+                }
+                if (index >= fence) {
+                    current = null;
+                    return false;
+                }
+                current = open(index++);
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Payment> action) {
+            if (nonNull(current)) {
+                current.forEachRemaining(action);
+                current = null;
+            }
+            while (index < fence) {
+                open(index++).forEachRemaining(action);
+            }
+        }
+
+        @Override
+        public Spliterator<Payment> trySplit() {
+            if (isNull(current) && fence - index == 1) {
+                current = open(index++);
+            }
+            if (index == fence) {
+                return isNull(current) ? null : current.trySplit();
+            }
+            // the shard already being read comes first, so it goes with the prefix
+            final int middle = isNull(current) ? (index + fence) >>> 1 : index + (fence - index) / 2;
+            final Spliterator<Payment> prefix = new ShardSpliterator(shards, scan, index, middle, current);
+            index = middle;
+            current = null;
+            return prefix;
+        }
+
+        // a shard not opened yet has an unknown size
+        @Override
+        public long estimateSize() {
+            if (index < fence) {
+                return Long.MAX_VALUE;
+            }
+            return isNull(current) ? 0 : current.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+
+        // the spliterator of a sequential pipeline never splits, so the shard's stream is asked for a parallel one
+        private Spliterator<Payment> open(int shard) {
+            return scan.apply(shards.get(shard)).parallel().spliterator();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.endava.internship.mocking.repository;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.endava.internship.mocking.model.Payment;
+
+/*
+ * Immutable list of payments in amount order, backed by a persistent AVL tree. Adding or removing a payment copies
+ * only the path to it, O(log n), and leaves the original list untouched, so a writer can publish a new version
+ * through a volatile field while readers keep iterating the one they already hold. Nodes carry their subtree size,
+ * which makes get(int) O(log n) as well.
+ */
+final class SortedPaymentList extends AbstractList<Payment> {
+
+    // the id breaks ties between equal amounts, so every payment has a position of its own
+    static final Comparator<Payment> ORDER = Comparator.comparingDouble(Payment::getAmount)
+        .thenComparing(Payment::getPaymentId);
+
+    private static final SortedPaymentList EMPTY = new SortedPaymentList(null);
+
+    private final Node root;
+
+    private SortedPaymentList(Node root) {
+        this.root = root;
+    }
+
+    static SortedPaymentList empty() {
+        return EMPTY;
+    }
+
+    // replaces the payment with the same amount and id, if there is one
+    SortedPaymentList with(Payment payment) {
+        return new SortedPaymentList(insert(root, payment));
+    }
+
+    SortedPaymentList without(Payment payment) {
+        final Node removed = remove(root, payment);
+        return removed == root ? this : new SortedPaymentList(removed);
+    }
+
+    // the payment held for the amount and id of the given one
+    Payment find(Payment payment) {
+        Node node = root;
+        while (nonNull(node)) {
+            final int order = ORDER.compare(payment, node.payment);
+            if (order == 0) {
+                return node.payment;
+            }
+            node = order < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    @Override
+    public Payment get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node node = root;
+        while (true) {
+            final int leftSize = size(node.left);
+            if (index == leftSize) {
+                return node.payment;
+            }
+            if (index < leftSize) {
+                node = node.left;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public Iterator<Payment> iterator() {
+        return new InOrderIterator(root);
+    }
+
+    private static Node insert(Node node, Payment payment) {
+        if (isNull(node)) {
+            return new Node(payment, null, null);
+        }
+        final int order = ORDER.compare(payment, node.payment);
+        if (order < 0) {
+            return balance(node.payment, insert(node.left, payment), node.right);
+        }
+        if (order > 0) {
+            return balance(node.payment, node.left, insert(node.right, payment));
+        }
+        return new Node(payment, node.left, node.right);
+    }
+
+    private static Node remove(Node node, Payment payment) {
+        if (isNull(node)) {
+            return null;
+        }
+        final int order = ORDER.compare(payment, node.payment);
+        if (order < 0) {
+            final Node left = remove(node.left, payment);
+            return left == node.left ? node : balance(node.payment, left, node.right);
+        }
+        if (order > 0) {
+            final Node right = remove(node.right, payment);
+            return right == node.right ? node : balance(node.payment, node.left, right);
+        }
+        if (isNull(node.left)) {
+            return node.right;
+        }
+        if (isNull(node.right)) {
+            return node.left;
+        }
+        Node successor = node.right;
+        while (nonNull(successor.left)) {
+            successor = successor.left;
+        }
+        return balance(successor.payment, node.left, remove(node.right, successor.payment));
+    }
+
+    private static Node balance(Payment payment, Node left, Node right) {
+        if (height(left) > height(right) + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.payment, left.left, new Node(payment, left.right, right));
+            }
+            final Node pivot = left.right;
+            return new Node(pivot.payment, new Node(left.payment, left.left, pivot.left),
+                new Node(payment, pivot.right, right));
+        }
+        if (height(right) > height(left) + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(right.payment, new Node(payment, left, right.left), right.right);
+            }
+            final Node pivot = right.left;
+            return new Node(pivot.payment, new Node(payment, left, pivot.left),
+                new Node(right.payment, pivot.right, right.right));
+        }
+        return new Node(payment, left, right);
+    }
+
+    private static int height(Node node) {
+        return isNull(node) ? 0 : node.height;
+    }
+
+    private static int size(Node node) {
+        return isNull(node) ? 0 : node.size;
+    }
+
+    private static final class Node {
+
+        private final Payment payment;
+
+        private final Node left;
+
+        private final Node right;
+
+        private final int height;
+
+        private final int size;
+
+        private Node(Payment payment, Node left, Node right) {
+            this.payment = payment;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private static final class InOrderIterator implements Iterator<Payment> {
+
+        private final Deque<Node> path = new ArrayDeque<>();
+
+        private InOrderIterator(Node root) {
+            descend(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public Payment next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            final Node node = path.pop();
+            descend(node.right);
+            return node.payment;
+        }
+
+        private void descend(Node node) {
+            for (; nonNull(node); node = node.left) {
+                path.push(node);
+            }
+        }
+    }
+}
@@ -6,4 +6,6 @@ import java.util.Optional;
 
 public interface UserRepository {
     Optional<User> findById(Integer userId);
+
+    long count();
 }
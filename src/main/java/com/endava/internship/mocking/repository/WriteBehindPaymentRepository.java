@@ -0,0 +1,523 @@
+package com.endava.internship.mocking.repository;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.endava.internship.mocking.model.Payment;
+
+/*
+ * Acknowledges saves as soon as they are queued and writes them to the wrapped repository in batches from a
+ * background thread, so callers no longer wait for a slow store. Queued payments stay in an overlay until the
+ * delegate has them, which lets every read see them. Edits and deletes of a queued payment flush it first and then
+ * go to the delegate. A full queue blocks the saving thread until the flusher catches up, and close() drains what is
+ * left. An acknowledged payment is never dropped: one the delegate refuses stays queued and in the overlay and is
+ * retried with a growing backoff. Once a payment has failed MAX_FAILED_ATTEMPTS times in a row the repository
+ * reports the failure, saves and flush() throw IllegalStateException with the delegate's error until the retries get
+ * through.
+ */
+public class WriteBehindPaymentRepository implements PaymentRepository, AutoCloseable {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int DEFAULT_FLUSH_SIZE = 256;
+
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(10);
+
+    private static final long BACKPRESSURE_PAUSE_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static final long MAX_RETRY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final int MAX_FAILED_ATTEMPTS = 5;
+
+    private final PaymentRepository delegate;
+
+    private final MpscRingBuffer<Payment> buffer;
+
+    private final ConcurrentMap<UUID, Payment> pending = new ConcurrentHashMap<>();
+
+    private final int flushSize;
+
+    private final long flushIntervalNanos;
+
+    // the ring buffer takes a single consumer, the flusher and callers of flush() take turns through this lock
+    private final Lock drainLock = new ReentrantLock();
+
+    // signalled after every write, so callers waiting for a payment to reach the delegate can check again
+    private final Condition written = drainLock.newCondition();
+
+    // payments the delegate refused, guarded by drainLock like the retry state below
+    private final List<Payment> retries = new ArrayList<>();
+
+    private long retryAtNanos;
+
+    private long retryBackoffNanos;
+
+    private int failedAttempts;
+
+    private RuntimeException lastWriteError;
+
+    private volatile RuntimeException writeFailure;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final AtomicInteger activeWriters = new AtomicInteger();
+
+    private final LongAdder failedWrites = new LongAdder();
+
+    private final LongAdder backpressureWaits = new LongAdder();
+
+    private final Thread flusher;
+
+    public WriteBehindPaymentRepository(PaymentRepository delegate) {
+        this(delegate, DEFAULT_CAPACITY, DEFAULT_FLUSH_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    public WriteBehindPaymentRepository(PaymentRepository delegate, int capacity, int flushSize, Duration flushInterval) {
+        if (isNull(delegate)) {
+            throw new IllegalArgumentException("Payment repository must not be null");
+        }
+        if (flushSize <= 0) {
+            throw new IllegalArgumentException("Flush size must be greater than 0");
+        }
+        if (isNull(flushInterval) || flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.delegate = delegate;
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.retryBackoffNanos = flushIntervalNanos;
+
+        flusher = new Thread(this::runFlusher, "payment-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public Optional<Payment> findById(UUID paymentId) {
+        // a payment leaves the overlay only once the delegate has it, so a miss here means the delegate decides
+        final Payment buffered = isNull(paymentId) ? null : pending.get(paymentId);
+        return nonNull(buffered) ? Optional.of(buffered) : delegate.findById(paymentId);
+    }
+
+    @Override
+    public List<Payment> findAll() {
+        return stream().collect(toList());
+    }
+
+    @Override
+    public Stream<Payment> stream() {
+        final Map<UUID, Payment> buffered = snapshot();
+        return merge(delegate.stream(), buffered, payment -> true);
+    }
+
+    @Override
+    public List<Payment> findPage(UUID after, int limit) {
+        final Map<UUID, Payment> buffered = snapshot();
+        // buffered payments the delegate already holds are filtered out of its page, so ask for that many more
+        final int widened = limit <= 0 ? limit : (int) Math.min(Integer.MAX_VALUE, (long) limit + buffered.size());
+        return merge(delegate.findPage(after, widened).stream(), buffered,
+                payment -> isNull(after) || payment.getPaymentId().compareTo(after) > 0)
+            .sorted(Comparator.comparing(Payment::getPaymentId))
+            .limit(limit)
+            .collect(toList());
+    }
+
+    @Override
+    public List<Payment> findByAmountGreaterThan(double amount) {
+        return streamByAmountGreaterThan(amount).collect(toList());
+    }
+
+    @Override
+    public Stream<Payment> streamByAmountGreaterThan(double amount) {
+        final Map<UUID, Payment> buffered = snapshot();
+        if (buffered.isEmpty()) {
+            return delegate.streamByAmountGreaterThan(amount);
+        }
+        // only the buffered matches are sorted, they are slotted into the delegate's amount order as it streams
+        final List<Payment> matches = buffered.values().stream()
+            .filter(payment -> payment.getAmount() > amount)
+            .sorted(Comparator.comparingDouble(Payment::getAmount))
+            .collect(toList());
+        final Stream<Payment> stored = delegate.streamByAmountGreaterThan(amount)
+            .filter(payment -> !buffered.containsKey(payment.getPaymentId()));
+        return StreamSupport.stream(new AmountMergeSpliterator(stored.spliterator(), matches), false)
+            .onClose(stored::close);
+    }
+
+    @Override
+    public List<Payment> findByUserId(int userId) {
+        return streamByUserId(userId).collect(toList());
+    }
+
+    @Override
+    public double sumAmountByUser(int userId) {
+        return streamByUserId(userId).mapToDouble(Payment::getAmount).sum();
+    }
+
+    @Override
+    public long countByUser(int userId) {
+        return streamByUserId(userId).count();
+    }
+
+    // may count a payment twice for the moment between the delegate storing it and the overlay letting go of it
+    @Override
+    public long count() {
+        return delegate.count() + pending.size();
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        validatePayment(payment);
+        throwIfFailing();
+
+        enterWrite();
+        try {
+            reserve(payment);
+            enqueue(payment);
+        } finally {
+            activeWriters.decrementAndGet();
+        }
+        return payment;
+    }
+
+    @Override
+    public List<Payment> saveAll(List<Payment> payments) {
+        if (isNull(payments)) {
+            throw new IllegalArgumentException("Payments must not be null");
+        }
+        payments.forEach(this::validatePayment);
+        throwIfFailing();
+
+        enterWrite();
+        try {
+            final List<UUID> reserved = new ArrayList<>(payments.size());
+            try {
+                for (Payment payment : payments) {
+                    reserve(payment);
+                    reserved.add(payment.getPaymentId());
+                }
+            } catch (RuntimeException e) {
+                reserved.forEach(pending::remove);
+                throw e;
+            }
+            payments.forEach(this::enqueue);
+        } finally {
+            activeWriters.decrementAndGet();
+        }
+        return payments;
+    }
+
+    @Override
+    public Payment editMessage(UUID paymentId, String message) {
+        awaitFlushed(paymentId);
+        return delegate.editMessage(paymentId, message);
+    }
+
+    @Override
+    public Payment editMessage(UUID paymentId, long expectedVersion, String message) {
+        awaitFlushed(paymentId);
+        return delegate.editMessage(paymentId, expectedVersion, message);
+    }
+
+    @Override
+    public Payment delete(UUID paymentId) {
+        awaitFlushed(paymentId);
+        return delegate.delete(paymentId);
+    }
+
+    // writes every queued payment to the delegate before returning, retrying refused ones without waiting out the backoff
+    public void flush() {
+        drainLock.lock();
+        try {
+            drain(true);
+            if (!retries.isEmpty()) {
+                throw new IllegalStateException(retries.size() + " payments could not be written to the delegate",
+                    lastWriteError);
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    public int pendingWrites() {
+        return pending.size();
+    }
+
+    // every refused attempt counts, a payment that is retried three times before it gets through counts three times
+    public long failedWrites() {
+        return failedWrites.sum();
+    }
+
+    public long backpressureWaits() {
+        return backpressureWaits.sum();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        // writers that got in before the flag was set may be waiting for room, keep draining until they are done
+        while (activeWriters.get() > 0) {
+            drainLocked();
+            Thread.yield();
+        }
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void runFlusher() {
+        while (!closed.get()) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            drainLocked();
+        }
+    }
+
+    private void drainLocked() {
+        drainLock.lock();
+        try {
+            drain(false);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // retried payments go first so they are not overtaken by newer ones for longer than the backoff
+    private void drain(boolean retryNow) {
+        if (!retries.isEmpty() && (retryNow || System.nanoTime() - retryAtNanos >= 0)) {
+            final List<Payment> batch = new ArrayList<>(retries);
+            retries.clear();
+            write(batch);
+        }
+        List<Payment> batch = new ArrayList<>(flushSize);
+        while (buffer.drainTo(batch, flushSize) > 0) {
+            write(batch);
+            batch = new ArrayList<>(flushSize);
+        }
+    }
+
+    private void enterWrite() {
+        activeWriters.incrementAndGet();
+        if (closed.get()) {
+            activeWriters.decrementAndGet();
+            throw new IllegalStateException("Write-behind repository is closed");
+        }
+    }
+
+    private void reserve(Payment payment) {
+        final UUID paymentId = payment.getPaymentId();
+        if (nonNull(pending.putIfAbsent(paymentId, payment))) {
+            throw new IllegalArgumentException("Payment with id " + paymentId + " already saved");
+        }
+        // payments flushed earlier are only known to the delegate
+        if (delegate.findById(paymentId).isPresent()) {
+            pending.remove(paymentId);
+            throw new IllegalArgumentException("Payment with id " + paymentId + " already saved");
+        }
+    }
+
+    private void enqueue(Payment payment) {
+        while (!buffer.offer(payment)) {
+            backpressureWaits.increment();
+            LockSupport.unpark(flusher);
+            LockSupport.parkNanos(this, BACKPRESSURE_PAUSE_NANOS);
+        }
+        if (buffer.size() >= flushSize) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    // called with drainLock held
+    private void write(List<Payment> batch) {
+        final List<Payment> failed = new ArrayList<>();
+        try {
+            delegate.saveAll(batch);
+        } catch (RuntimeException batchError) {
+            // the batch is rejected as a whole, so fall back to single saves to keep the payments that are fine
+            for (Payment payment : batch) {
+                try {
+                    delegate.save(payment);
+                } catch (RuntimeException e) {
+                    if (!isStored(payment)) {
+                        failed.add(payment);
+                        lastWriteError = e;
+                    }
+                }
+            }
+        }
+        for (Payment payment : batch) {
+            if (!failed.contains(payment)) {
+                pending.remove(payment.getPaymentId());
+            }
+        }
+
+        if (!failed.isEmpty()) {
+            retries.addAll(failed);
+            failedWrites.add(failed.size());
+            retryAtNanos = System.nanoTime() + retryBackoffNanos;
+            retryBackoffNanos = Math.min(retryBackoffNanos * 2, Math.max(flushIntervalNanos, MAX_RETRY_BACKOFF_NANOS));
+            if (++failedAttempts >= MAX_FAILED_ATTEMPTS) {
+                writeFailure = lastWriteError;
+            }
+        } else if (retries.isEmpty()) {
+            failedAttempts = 0;
+            retryBackoffNanos = flushIntervalNanos;
+            writeFailure = null;
+        }
+        written.signalAll();
+    }
+
+    // a save that reached the delegate before it failed, like one whose acknowledgement was lost, must not be retried
+    private boolean isStored(Payment payment) {
+        try {
+            return delegate.findById(payment.getPaymentId())
+                .filter(stored -> stored.equals(payment) && Objects.equals(stored.getMessage(), payment.getMessage()))
+                .isPresent();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void awaitFlushed(UUID paymentId) {
+        if (isNull(paymentId) || !pending.containsKey(paymentId)) {
+            return;
+        }
+        drainLock.lock();
+        try {
+            while (pending.containsKey(paymentId)) {
+                drain(false);
+                if (!pending.containsKey(paymentId)) {
+                    return;
+                }
+                throwIfFailing();
+                // refused and waiting for its retry, or reserved by a saver that has not queued it yet; the timeout
+                // lets this caller drive the retries itself once the flusher has stopped
+                written.awaitNanos(flushIntervalNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for payment " + paymentId + " to be written", e);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void throwIfFailing() {
+        final RuntimeException failure = writeFailure;
+        if (nonNull(failure)) {
+            throw new IllegalStateException("Write-behind repository cannot write to its delegate", failure);
+        }
+    }
+
+    private Map<UUID, Payment> snapshot() {
+        return new HashMap<>(pending);
+    }
+
+    private Stream<Payment> streamByUserId(int userId) {
+        final Map<UUID, Payment> buffered = snapshot();
+        return merge(delegate.findByUserId(userId).stream(), buffered, payment -> payment.getUserId() == userId);
+    }
+
+    // the snapshot is taken before the delegate is read, so a payment flushed in between is found exactly once
+    private static Stream<Payment> merge(Stream<Payment> stored, Map<UUID, Payment> buffered, Predicate<Payment> filter) {
+        return Stream.concat(
+            stored.filter(payment -> !buffered.containsKey(payment.getPaymentId())),
+            buffered.values().stream().filter(filter));
+    }
+
+    private static final class AmountMergeSpliterator implements Spliterator<Payment> {
+
+        private final Spliterator<Payment> stored;
+
+        private final List<Payment> buffered;
+
+        private int index;
+
+        private Payment next;
+
+        private boolean storedDone;
+
+        private AmountMergeSpliterator(Spliterator<Payment> stored, List<Payment> buffered) {
+            this.stored = stored;
+            this.buffered = buffered;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Payment> action) {
+            if (isNull(next) && !storedDone && !stored.tryAdvance(payment -> next = payment)) {
+                storedDone = true;
+            }
+            final Payment candidate = index < buffered.size() ? buffered.get(index) : null;
+            if (isNull(next) && isNull(candidate)) {
+                return false;
+            }
+            if (nonNull(candidate) && (isNull(next) || Double.compare(candidate.getAmount(), next.getAmount()) < 0)) {
+                index++;
+                action.accept(candidate);
+            } else {
+                final Payment payment = next;
+                next = null;
+                action.accept(payment);
+            }
+            return true;
+        }
+
+        @Override
+        public Spliterator<Payment> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            final long storedEstimate = stored.estimateSize();
+            final long remaining = buffered.size() - index + (isNull(next) ? 0 : 1);
+            return storedEstimate > Long.MAX_VALUE - remaining ? Long.MAX_VALUE : storedEstimate + remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    private void validatePayment(Payment payment) {
+        if (isNull(payment)) {
+            throw new IllegalArgumentException("Payment must not be null");
+        }
+        if (isNull(payment.getPaymentId())) {
+            throw new IllegalArgumentException("Payment id must not be null");
+        }
+    }
+}
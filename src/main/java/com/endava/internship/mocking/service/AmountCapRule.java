@@ -0,0 +1,26 @@
+package com.endava.internship.mocking.service;
+
+import com.endava.internship.mocking.model.User;
+import com.endava.internship.mocking.model.ValidationResult;
+
+public class AmountCapRule implements PaymentRule {
+
+    private final double maxAmount;
+
+    public AmountCapRule(double maxAmount) {
+        if (maxAmount <= 0) {
+            throw new IllegalArgumentException("Max amount must be greater than 0");
+        }
+        this.maxAmount = maxAmount;
+    }
+
+    @Override
+    public ValidationResult check(User user, double amount) {
+        return amount > maxAmount ? ValidationResult.AMOUNT_LIMIT_EXCEEDED : ValidationResult.VALID;
+    }
+
+    @Override
+    public int cost() {
+        return 1;
+    }
+}
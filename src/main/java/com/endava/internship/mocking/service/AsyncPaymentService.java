@@ -0,0 +1,133 @@
+package com.endava.internship.mocking.service;
+
+import static java.util.Objects.isNull;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.endava.internship.mocking.model.Payment;
+
+public class AsyncPaymentService implements AutoCloseable {
+
+    private static final Duration DEFAULT_ACQUIRE_TIMEOUT = Duration.ofMillis(100);
+
+    private final PaymentService paymentService;
+
+    private final ExecutorService executor;
+
+    private final boolean ownsExecutor;
+
+    private final Semaphore permits;
+
+    private final long acquireTimeoutNanos;
+
+    public AsyncPaymentService(PaymentService paymentService, int maxConcurrency) {
+        this(paymentService, newTaskExecutor(maxConcurrency), true, maxConcurrency, DEFAULT_ACQUIRE_TIMEOUT);
+    }
+
+    public AsyncPaymentService(PaymentService paymentService, ExecutorService executor, int maxConcurrency,
+                               Duration acquireTimeout) {
+        this(paymentService, executor, false, maxConcurrency, acquireTimeout);
+    }
+
+    private AsyncPaymentService(PaymentService paymentService, ExecutorService executor, boolean ownsExecutor,
+                                int maxConcurrency, Duration acquireTimeout) {
+        if (isNull(paymentService)) {
+            throw new IllegalArgumentException("Payment service must not be null");
+        }
+        if (isNull(executor)) {
+            throw new IllegalArgumentException("Executor must not be null");
+        }
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be greater than 0");
+        }
+        if (isNull(acquireTimeout) || acquireTimeout.isNegative()) {
+            throw new IllegalArgumentException("Acquire timeout must not be negative");
+        }
+        this.paymentService = paymentService;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.permits = new Semaphore(maxConcurrency);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    public CompletableFuture<Payment> createPayment(int userId, double amount) {
+        return submit(() -> paymentService.createPayment(userId, amount));
+    }
+
+    public CompletableFuture<Payment> editPaymentMessage(UUID paymentId, String newMessage) {
+        return submit(() -> paymentService.editPaymentMessage(paymentId, newMessage));
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        // callers wait briefly for a free slot and are turned away after that, so a burst cannot pile up work
+        if (!tryAcquire()) {
+            result.completeExceptionally(new RejectedExecutionException("Too many payment requests in flight"));
+            return result;
+        }
+        try {
+            executor.execute(() -> complete(result, call));
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private <T> void complete(CompletableFuture<T> result, Supplier<T> call) {
+        final T value;
+        try {
+            value = call.get();
+        } catch (Throwable e) {
+            permits.release();
+            result.completeExceptionally(e);
+            return;
+        }
+        // free the slot before completing so a caller chained on the future can submit straight away
+        permits.release();
+        result.complete(value);
+    }
+
+    private boolean tryAcquire() {
+        try {
+            return permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // uses a virtual thread per task on Java 21+, looked up reflectively so the project still builds for Java 8
+    static ExecutorService newTaskExecutor(int maxConcurrency) {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxConcurrency, task -> {
+                final Thread thread = new Thread(task, "async-payment-service");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -2,49 +2,71 @@ package com.endava.internship.mocking.service;
 
 import static java.util.Objects.isNull;
 
-import java.util.Objects;
 import java.util.UUID;
 
 import com.endava.internship.mocking.model.Status;
 import com.endava.internship.mocking.model.User;
+import com.endava.internship.mocking.model.ValidationResult;
 
 public class BasicValidationService implements ValidationService {
 
     @Override
-    public void validateAmount(Double amount) {
+    public ValidationResult checkAmount(Double amount) {
         if (amount == null) {
-            throw new IllegalArgumentException("Amount must not be null");
+            return ValidationResult.AMOUNT_NULL;
         }
-        if (amount <= 0) {
-            throw new IllegalArgumentException("Amount must be greater than 0");
+        return checkAmount(amount.doubleValue());
+    }
+
+    @Override
+    public ValidationResult checkAmount(double amount) {
+        // written so that NaN, which compares false both ways, is refused as well
+        if (!(amount > 0)) {
+            return ValidationResult.AMOUNT_NOT_POSITIVE;
         }
+        return ValidationResult.VALID;
     }
 
     @Override
-    public void validatePaymentId(UUID paymentId) {
+    public ValidationResult checkPaymentId(UUID paymentId) {
         if (isNull(paymentId)) {
-            throw new IllegalArgumentException("Payment id must not be null");
+            return ValidationResult.PAYMENT_ID_NULL;
         }
+        return ValidationResult.VALID;
     }
 
     @Override
-    public void validateUserId(Integer userId) {
+    public ValidationResult checkUserId(Integer userId) {
         if (isNull(userId)) {
-            throw new IllegalArgumentException("User id must not be null");
+            return ValidationResult.USER_ID_NULL;
         }
+        return ValidationResult.VALID;
     }
 
     @Override
-    public void validateUser(User user) {
+    public ValidationResult checkUserId(int userId) {
+        // a primitive id is always present
+        return ValidationResult.VALID;
+    }
+
+    @Override
+    public ValidationResult checkUser(User user) {
         if (user.getStatus() != Status.ACTIVE) {
-            throw new IllegalArgumentException("User with id " + user.getId() + " not in ACTIVE status");
+            return ValidationResult.USER_NOT_ACTIVE;
         }
+        return ValidationResult.VALID;
     }
 
     @Override
-    public void validateMessage(String message) {
+    public ValidationResult checkMessage(String message) {
         if (isNull(message)) {
-            throw new IllegalArgumentException("Payment message must not be null");
+            return ValidationResult.MESSAGE_NULL;
         }
+        return ValidationResult.VALID;
+    }
+
+    @Override
+    public ValidationResult checkPayment(User user, double amount) {
+        return ValidationResult.VALID;
     }
 }
@@ -0,0 +1,97 @@
+package com.endava.internship.mocking.service;
+
+import static java.util.Objects.isNull;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import com.endava.internship.mocking.metrics.MetricRegistry;
+import com.endava.internship.mocking.metrics.Timer;
+import com.endava.internship.mocking.model.Payment;
+import com.endava.internship.mocking.model.PaymentIdGenerator;
+import com.endava.internship.mocking.model.PaymentRequest;
+import com.endava.internship.mocking.model.PaymentResult;
+import com.endava.internship.mocking.repository.PaymentRepository;
+import com.endava.internship.mocking.repository.UserRepository;
+
+// PaymentService has no interface of its own, so the timings are taken around the inherited implementation
+public class InstrumentedPaymentService extends PaymentService {
+
+    private static final String METRIC = "payment_service";
+
+    private final Timer createPaymentTimer;
+
+    private final Timer createPaymentsTimer;
+
+    private final Timer editPaymentMessageTimer;
+
+    private final Timer getAllByAmountExceedingTimer;
+
+    private final Timer getAllByAmountExceedingInParallelTimer;
+
+    private final Timer streamAllByAmountExceedingTimer;
+
+    public InstrumentedPaymentService(UserRepository userRepository, PaymentRepository paymentRepository,
+                                      ValidationService validationService, MetricRegistry registry) {
+        this(userRepository, paymentRepository, validationService, null, registry);
+    }
+
+    public InstrumentedPaymentService(UserRepository userRepository, PaymentRepository paymentRepository,
+                                      ValidationService validationService, VelocityLimiter velocityLimiter,
+                                      MetricRegistry registry) {
+        this(userRepository, paymentRepository, validationService, velocityLimiter, null, registry);
+    }
+
+    public InstrumentedPaymentService(UserRepository userRepository, PaymentRepository paymentRepository,
+                                      ValidationService validationService, VelocityLimiter velocityLimiter,
+                                      PaymentIdGenerator idGenerator, MetricRegistry registry) {
+        super(userRepository, paymentRepository, validationService, velocityLimiter, idGenerator);
+        if (isNull(registry)) {
+            throw new IllegalArgumentException("Metric registry must not be null");
+        }
+        createPaymentTimer = registry.timer(METRIC, "createPayment");
+        createPaymentsTimer = registry.timer(METRIC, "createPayments");
+        editPaymentMessageTimer = registry.timer(METRIC, "editPaymentMessage");
+        getAllByAmountExceedingTimer = registry.timer(METRIC, "getAllByAmountExceeding");
+        getAllByAmountExceedingInParallelTimer = registry.timer(METRIC, "getAllByAmountExceedingInParallel");
+        streamAllByAmountExceedingTimer = registry.timer(METRIC, "streamAllByAmountExceeding");
+    }
+
+    // createPayment is a thin adapter over this method, so both are timed here
+    @Override
+    public PaymentResult tryCreatePayment(Integer userId, Double amount) {
+        return createPaymentTimer.record(() -> super.tryCreatePayment(userId, amount));
+    }
+
+    @Override
+    public List<PaymentResult> createPayments(List<PaymentRequest> requests) {
+        return createPaymentsTimer.record(() -> super.createPayments(requests));
+    }
+
+    @Override
+    public Payment editPaymentMessage(UUID paymentId, String newMessage) {
+        return editPaymentMessageTimer.record(() -> super.editPaymentMessage(paymentId, newMessage));
+    }
+
+    @Override
+    public Payment editPaymentMessage(UUID paymentId, long expectedVersion, String newMessage) {
+        return editPaymentMessageTimer.record(() -> super.editPaymentMessage(paymentId, expectedVersion, newMessage));
+    }
+
+    @Override
+    public List<Payment> getAllByAmountExceeding(double amount) {
+        return getAllByAmountExceedingTimer.record(() -> super.getAllByAmountExceeding(amount));
+    }
+
+    @Override
+    public List<Payment> getAllByAmountExceeding(double amount, ForkJoinPool pool) {
+        return getAllByAmountExceedingInParallelTimer.record(() -> super.getAllByAmountExceeding(amount, pool));
+    }
+
+    @Override
+    public Stream<Payment> streamAllByAmountExceeding(double amount) {
+        return streamAllByAmountExceedingTimer.record(() -> super.streamAllByAmountExceeding(amount));
+    }
+}
@@ -0,0 +1,82 @@
+package com.endava.internship.mocking.service;
+
+import static java.util.Objects.isNull;
+
+import java.util.UUID;
+
+import com.endava.internship.mocking.metrics.MetricRegistry;
+import com.endava.internship.mocking.metrics.Timer;
+import com.endava.internship.mocking.model.User;
+import com.endava.internship.mocking.model.ValidationResult;
+
+public class InstrumentedValidationService implements ValidationService {
+
+    private static final String METRIC = "validation_service";
+
+    private final ValidationService delegate;
+
+    private final Timer checkAmountTimer;
+
+    private final Timer checkPaymentIdTimer;
+
+    private final Timer checkUserIdTimer;
+
+    private final Timer checkUserTimer;
+
+    private final Timer checkMessageTimer;
+
+    private final Timer checkPaymentTimer;
+
+    public InstrumentedValidationService(ValidationService delegate, MetricRegistry registry) {
+        if (isNull(delegate) || isNull(registry)) {
+            throw new IllegalArgumentException("Validation service and metric registry must not be null");
+        }
+        this.delegate = delegate;
+        checkAmountTimer = registry.timer(METRIC, "checkAmount");
+        checkPaymentIdTimer = registry.timer(METRIC, "checkPaymentId");
+        checkUserIdTimer = registry.timer(METRIC, "checkUserId");
+        checkUserTimer = registry.timer(METRIC, "checkUser");
+        checkMessageTimer = registry.timer(METRIC, "checkMessage");
+        checkPaymentTimer = registry.timer(METRIC, "checkPayment");
+    }
+
+    @Override
+    public ValidationResult checkAmount(Double amount) {
+        return checkAmountTimer.record(() -> delegate.checkAmount(amount));
+    }
+
+    @Override
+    public ValidationResult checkAmount(double amount) {
+        return checkAmountTimer.record(() -> delegate.checkAmount(amount));
+    }
+
+    @Override
+    public ValidationResult checkPaymentId(UUID paymentId) {
+        return checkPaymentIdTimer.record(() -> delegate.checkPaymentId(paymentId));
+    }
+
+    @Override
+    public ValidationResult checkUserId(Integer userId) {
+        return checkUserIdTimer.record(() -> delegate.checkUserId(userId));
+    }
+
+    @Override
+    public ValidationResult checkUserId(int userId) {
+        return checkUserIdTimer.record(() -> delegate.checkUserId(userId));
+    }
+
+    @Override
+    public ValidationResult checkUser(User user) {
+        return checkUserTimer.record(() -> delegate.checkUser(user));
+    }
+
+    @Override
+    public ValidationResult checkMessage(String message) {
+        return checkMessageTimer.record(() -> delegate.checkMessage(message));
+    }
+
+    @Override
+    public ValidationResult checkPayment(User user, double amount) {
+        return checkPaymentTimer.record(() -> delegate.checkPayment(user, amount));
+    }
+}
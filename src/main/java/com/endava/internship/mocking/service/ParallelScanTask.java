@@ -0,0 +1,50 @@
+package com.endava.internship.mocking.service;
+
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.RecursiveTask;
+
+class ParallelScanTask<T> extends RecursiveTask<List<T>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MIN_SPLIT_SIZE = 1024;
+
+    // aim for a few tasks per worker so that idle workers can steal from busy ones
+    private static final int TASKS_PER_WORKER = 4;
+
+    private final Spliterator<T> spliterator;
+
+    private final long splitThreshold;
+
+    ParallelScanTask(Spliterator<T> spliterator, int parallelism) {
+        this(spliterator, Math.max(MIN_SPLIT_SIZE, spliterator.estimateSize() / ((long) parallelism * TASKS_PER_WORKER)));
+    }
+
+    private ParallelScanTask(Spliterator<T> spliterator, long splitThreshold) {
+        this.spliterator = spliterator;
+        this.splitThreshold = splitThreshold;
+    }
+
+    @Override
+    protected List<T> compute() {
+        if (spliterator.estimateSize() > splitThreshold) {
+            final Spliterator<T> prefix = spliterator.trySplit();
+            if (nonNull(prefix)) {
+                final ParallelScanTask<T> prefixTask = new ParallelScanTask<>(prefix, splitThreshold);
+                prefixTask.fork();
+                final List<T> suffixResult = compute();
+                final List<T> result = prefixTask.join();
+                result.addAll(suffixResult);
+                return result;
+            }
+        }
+
+        final List<T> result = new ArrayList<>();
+        spliterator.forEachRemaining(result::add);
+        return result;
+    }
+}
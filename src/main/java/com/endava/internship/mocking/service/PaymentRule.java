@@ -0,0 +1,15 @@
+package com.endava.internship.mocking.service;
+
+import com.endava.internship.mocking.model.User;
+import com.endava.internship.mocking.model.ValidationResult;
+
+public interface PaymentRule {
+    ValidationResult check(User user, double amount);
+
+    // relative cost of one check, used together with the observed rejection rate to order the rules
+    int cost();
+
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
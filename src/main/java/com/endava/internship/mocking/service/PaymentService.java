@@ -1,12 +1,28 @@
 package com.endava.internship.mocking.service;
 
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.Spliterator;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 import com.endava.internship.mocking.model.Payment;
+import com.endava.internship.mocking.model.PaymentIdGenerator;
+import com.endava.internship.mocking.model.PaymentRequest;
+import com.endava.internship.mocking.model.PaymentResult;
 import com.endava.internship.mocking.model.User;
+import com.endava.internship.mocking.model.ValidationResult;
+import com.endava.internship.mocking.repository.AmountThresholdView;
+import com.endava.internship.mocking.repository.ObservablePaymentRepository;
 import com.endava.internship.mocking.repository.PaymentRepository;
 import com.endava.internship.mocking.repository.UserRepository;
 
@@ -15,38 +31,241 @@ public class PaymentService {
     private UserRepository userRepository;
     private PaymentRepository paymentRepository;
     private ValidationService validationService;
+    private VelocityLimiter velocityLimiter;
+    private PaymentIdGenerator idGenerator;
+    private final ConcurrentMap<Double, AmountThresholdView> thresholdViews = new ConcurrentHashMap<>();
 
     public PaymentService(UserRepository userRepository, PaymentRepository paymentRepository,
                           ValidationService validationService) {
+        this(userRepository, paymentRepository, validationService, null);
+    }
+
+    public PaymentService(UserRepository userRepository, PaymentRepository paymentRepository,
+                          ValidationService validationService, VelocityLimiter velocityLimiter) {
+        this(userRepository, paymentRepository, validationService, velocityLimiter, null);
+    }
+
+    public PaymentService(UserRepository userRepository, PaymentRepository paymentRepository,
+                          ValidationService validationService, VelocityLimiter velocityLimiter,
+                          PaymentIdGenerator idGenerator) {
         this.userRepository = userRepository;
         this.paymentRepository = paymentRepository;
         this.validationService = validationService;
+        this.velocityLimiter = velocityLimiter;
+        this.idGenerator = isNull(idGenerator) ? Payment.defaultIdGenerator() : idGenerator;
     }
 
+    // a single boxed signature, so callers mixing User.getId() with a double literal still compile
     public Payment createPayment(Integer userId, Double amount) {
-        validationService.validateUserId(userId);
-        validationService.validateAmount(amount);
+        final PaymentResult result = tryCreatePayment(userId, amount);
+        if (!result.isSuccessful()) {
+            throw result.getError();
+        }
+        return result.getPayment();
+    }
+
+    // rejections come back as a result, so callers that expect them pay for neither a message nor a stack trace
+    public PaymentResult tryCreatePayment(Integer userId, Double amount) {
+        final PaymentRequest request = new PaymentRequest(userId, amount);
+        try {
+            ValidationResult check = validationService.checkUserId(userId);
+            if (check.isValid()) {
+                check = validationService.checkAmount(amount);
+            }
+            if (!check.isValid()) {
+                return PaymentResult.rejected(request, check);
+            }
+            return createValidatedPayment(request, userId.intValue(), amount.doubleValue());
+        } catch (RuntimeException e) {
+            return PaymentResult.failure(request, e);
+        }
+    }
 
-        final User user = userRepository.findById(userId)
-            .orElseThrow(() -> new NoSuchElementException("User with id " + userId + " not found"));
-        validationService.validateUser(user);
+    public List<PaymentResult> createPayments(List<PaymentRequest> requests) {
+        if (isNull(requests)) {
+            throw new IllegalArgumentException("Payment requests must not be null");
+        }
 
-        final String paymentMessage = "Payment from user " + user.getName();
-        final Payment payment = new Payment(user.getId(), amount, paymentMessage);
-        return paymentRepository.save(payment);
+        final PaymentResult[] results = new PaymentResult[requests.size()];
+        final Map<Integer, User> validUsers = new HashMap<>();
+        final Map<Integer, ValidationResult> rejectedUsers = new HashMap<>();
+        final List<Integer> pendingIndexes = new ArrayList<>(requests.size());
+        final List<Payment> pendingPayments = new ArrayList<>(requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            final PaymentRequest request = requests.get(i);
+            if (isNull(request)) {
+                results[i] = PaymentResult.failure(null, new IllegalArgumentException("Payment request must not be null"));
+                continue;
+            }
+            try {
+                ValidationResult check = validationService.checkUserId(request.getUserId());
+                if (check.isValid()) {
+                    check = validationService.checkAmount(request.getAmount());
+                }
+                if (check.isValid()) {
+                    check = resolveUser(request.getUserId(), validUsers, rejectedUsers);
+                }
+                final User user = validUsers.get(request.getUserId());
+                if (check.isValid()) {
+                    check = validationService.checkPayment(user, request.getAmount());
+                }
+                if (check.isValid()) {
+                    check = checkVelocity(user, request.getAmount());
+                }
+                if (!check.isValid()) {
+                    results[i] = PaymentResult.rejected(request, check);
+                    continue;
+                }
+
+                pendingIndexes.add(i);
+                pendingPayments.add(new Payment(idGenerator, user.getId(), request.getAmount(), paymentMessage(user)));
+            } catch (RuntimeException e) {
+                results[i] = PaymentResult.failure(request, e);
+            }
+        }
+
+        saveBatch(requests, pendingIndexes, pendingPayments, results);
+        return Arrays.asList(results);
     }
 
     public Payment editPaymentMessage(UUID paymentId, String newMessage) {
-        validationService.validatePaymentId(paymentId);
-        validationService.validateMessage(newMessage);
-
+        validateEdit(paymentId, newMessage);
         return paymentRepository.editMessage(paymentId, newMessage);
     }
 
-    public List<Payment> getAllByAmountExceeding(Double amount) {
-        return paymentRepository.findAll()
-            .stream()
-            .filter(payment -> payment.getAmount() > amount)
-            .collect(Collectors.toList());
+    // fails with ConcurrentModificationException if someone else edited the payment after expectedVersion was read
+    public Payment editPaymentMessage(UUID paymentId, long expectedVersion, String newMessage) {
+        validateEdit(paymentId, newMessage);
+        return paymentRepository.editMessage(paymentId, expectedVersion, newMessage);
+    }
+
+    public List<Payment> getAllByAmountExceeding(double amount) {
+        final AmountThresholdView view = thresholdViews.isEmpty() ? null : thresholdViews.get(amount);
+        return isNull(view) ? paymentRepository.findByAmountGreaterThan(amount) : view.getPayments();
+    }
+
+    // thresholds polled over and over are answered from a view that the repository keeps up to date
+    public AmountThresholdView registerAmountThreshold(double amount) {
+        if (!(paymentRepository instanceof ObservablePaymentRepository)) {
+            throw new IllegalStateException("Payment repository does not publish its changes");
+        }
+        final ObservablePaymentRepository repository = (ObservablePaymentRepository) paymentRepository;
+        return thresholdViews.computeIfAbsent(amount, threshold -> new AmountThresholdView(repository, threshold));
+    }
+
+    public void unregisterAmountThreshold(double amount) {
+        final AmountThresholdView view = thresholdViews.remove(amount);
+        if (nonNull(view)) {
+            view.close();
+        }
+    }
+
+    public List<Payment> getAllByAmountExceeding(double amount, ForkJoinPool pool) {
+        if (isNull(pool)) {
+            throw new IllegalArgumentException("Fork join pool must not be null");
+        }
+        final Spliterator<Payment> payments = paymentRepository.streamByAmountGreaterThan(amount).spliterator();
+        return pool.invoke(new ParallelScanTask<>(payments, pool.getParallelism()));
+    }
+
+    public Stream<Payment> streamAllByAmountExceeding(double amount) {
+        return paymentRepository.streamByAmountGreaterThan(amount);
+    }
+
+    private void validateEdit(UUID paymentId, String newMessage) {
+        final ValidationResult paymentIdCheck = validationService.checkPaymentId(paymentId);
+        if (!paymentIdCheck.isValid()) {
+            throw paymentIdCheck.toException(paymentId);
+        }
+        final ValidationResult messageCheck = validationService.checkMessage(newMessage);
+        if (!messageCheck.isValid()) {
+            throw messageCheck.toException(newMessage);
+        }
+    }
+
+    // everything after the null checks runs on primitives
+    private PaymentResult createValidatedPayment(PaymentRequest request, int userId, double amount) {
+        final User user = userRepository.findById(userId).orElse(null);
+        ValidationResult check = isNull(user) ? ValidationResult.USER_NOT_FOUND : validationService.checkUser(user);
+        if (check.isValid()) {
+            check = validationService.checkPayment(user, amount);
+        }
+        if (check.isValid()) {
+            check = checkVelocity(user, amount);
+        }
+        if (!check.isValid()) {
+            return PaymentResult.rejected(request, check);
+        }
+
+        final Payment payment = new Payment(idGenerator, user.getId(), amount, paymentMessage(user));
+        try {
+            return PaymentResult.success(request, paymentRepository.save(payment));
+        } catch (RuntimeException e) {
+            releaseVelocity(payment);
+            throw e;
+        }
+    }
+
+    // the store interns the text through its own pool, so repeated messages are shared once they are saved
+    private static String paymentMessage(User user) {
+        return "Payment from user " + user.getName();
+    }
+
+    // runs last so that payments rejected for any other reason do not use up the user's window
+    private ValidationResult checkVelocity(User user, double amount) {
+        return isNull(velocityLimiter) ? ValidationResult.VALID : velocityLimiter.tryAcquire(user.getId(), amount);
+    }
+
+    // a payment the repository did not store must not count against the user's window either
+    private void releaseVelocity(Payment payment) {
+        if (nonNull(velocityLimiter)) {
+            velocityLimiter.release(payment.getUserId(), payment.getAmount());
+        }
+    }
+
+    private ValidationResult resolveUser(Integer userId, Map<Integer, User> validUsers,
+                                         Map<Integer, ValidationResult> rejectedUsers) {
+        if (validUsers.containsKey(userId)) {
+            return ValidationResult.VALID;
+        }
+        final ValidationResult rejection = rejectedUsers.get(userId);
+        if (nonNull(rejection)) {
+            return rejection;
+        }
+
+        final User user = userRepository.findById(userId).orElse(null);
+        final ValidationResult check = isNull(user) ? ValidationResult.USER_NOT_FOUND : validationService.checkUser(user);
+        if (check.isValid()) {
+            validUsers.put(userId, user);
+        } else {
+            rejectedUsers.put(userId, check);
+        }
+        return check;
+    }
+
+    private void saveBatch(List<PaymentRequest> requests, List<Integer> indexes, List<Payment> payments,
+                           PaymentResult[] results) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        try {
+            final List<Payment> saved = paymentRepository.saveAll(payments);
+            for (int i = 0; i < indexes.size(); i++) {
+                final int index = indexes.get(i);
+                results[index] = PaymentResult.success(requests.get(index), saved.get(i));
+            }
+        } catch (RuntimeException batchError) {
+            // the batch is rejected as a whole, so fall back to single saves to find out which rows failed
+            for (int i = 0; i < indexes.size(); i++) {
+                final int index = indexes.get(i);
+                try {
+                    results[index] = PaymentResult.success(requests.get(index), paymentRepository.save(payments.get(i)));
+                } catch (RuntimeException e) {
+                    releaseVelocity(payments.get(i));
+                    results[index] = PaymentResult.failure(requests.get(index), e);
+                }
+            }
+        }
     }
 }
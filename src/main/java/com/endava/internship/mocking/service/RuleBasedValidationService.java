@@ -0,0 +1,122 @@
+package com.endava.internship.mocking.service;
+
+import static java.util.Objects.isNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.endava.internship.mocking.model.User;
+import com.endava.internship.mocking.model.ValidationResult;
+
+/*
+ * Runs the payment rules in the order that makes a rejection cheapest to reach: rules are sorted by
+ * declared cost divided by observed rejection rate, so cheap rules that reject often go first, and the
+ * first failing rule ends the check. The order is recomputed from the collected statistics about once
+ * every REORDER_INTERVAL checks.
+ */
+public class RuleBasedValidationService extends BasicValidationService {
+
+    private static final int REORDER_INTERVAL = 1024;
+
+    private final RuleSlot[] slots;
+
+    private final AtomicBoolean reordering = new AtomicBoolean();
+
+    private volatile RuleSlot[] order;
+
+    public RuleBasedValidationService(List<? extends PaymentRule> rules) {
+        if (isNull(rules)) {
+            throw new IllegalArgumentException("Rules must not be null");
+        }
+        slots = new RuleSlot[rules.size()];
+        for (int i = 0; i < slots.length; i++) {
+            final PaymentRule rule = rules.get(i);
+            if (isNull(rule)) {
+                throw new IllegalArgumentException("Rule must not be null");
+            }
+            if (rule.cost() < 0) {
+                throw new IllegalArgumentException("Rule cost must not be negative");
+            }
+            slots[i] = new RuleSlot(rule);
+        }
+        order = slots.clone();
+        reorder();
+    }
+
+    @Override
+    public ValidationResult checkPayment(User user, double amount) {
+        ValidationResult result = ValidationResult.VALID;
+        for (RuleSlot slot : order) {
+            final long start = System.nanoTime();
+            result = slot.rule.check(user, amount);
+            slot.record(System.nanoTime() - start, !result.isValid());
+            if (!result.isValid()) {
+                break;
+            }
+        }
+
+        if (ThreadLocalRandom.current().nextInt(REORDER_INTERVAL) == 0) {
+            reorder();
+        }
+        return result;
+    }
+
+    public List<RuleStatistics> ruleStatistics() {
+        final List<RuleStatistics> statistics = new ArrayList<>(slots.length);
+        for (RuleSlot slot : order) {
+            statistics.add(slot.statistics());
+        }
+        return statistics;
+    }
+
+    void reorder() {
+        if (!reordering.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final RuleSlot[] reordered = slots.clone();
+            Arrays.sort(reordered, Comparator.comparingDouble(RuleSlot::score));
+            order = reordered;
+        } finally {
+            reordering.set(false);
+        }
+    }
+
+    private static final class RuleSlot {
+
+        private final PaymentRule rule;
+
+        private final LongAdder evaluations = new LongAdder();
+
+        private final LongAdder rejections = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private RuleSlot(PaymentRule rule) {
+            this.rule = rule;
+        }
+
+        void record(long nanos, boolean rejected) {
+            evaluations.increment();
+            totalNanos.add(nanos);
+            if (rejected) {
+                rejections.increment();
+            }
+        }
+
+        // expected cost spent per rejection; a rule that has never run is assumed to reject half the time
+        double score() {
+            final double rejectionRate = (rejections.sum() + 1.0) / (evaluations.sum() + 2.0);
+            return rule.cost() / rejectionRate;
+        }
+
+        RuleStatistics statistics() {
+            return new RuleStatistics(rule.name(), rule.cost(), evaluations.sum(), rejections.sum(), totalNanos.sum());
+        }
+    }
+}
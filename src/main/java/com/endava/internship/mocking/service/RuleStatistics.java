@@ -0,0 +1,52 @@
+package com.endava.internship.mocking.service;
+
+public class RuleStatistics {
+
+    private final String name;
+
+    private final int cost;
+
+    private final long evaluations;
+
+    private final long rejections;
+
+    private final long totalNanos;
+
+    RuleStatistics(String name, int cost, long evaluations, long rejections, long totalNanos) {
+        this.name = name;
+        this.cost = cost;
+        this.evaluations = evaluations;
+        this.rejections = rejections;
+        this.totalNanos = totalNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    public long getRejections() {
+        return rejections;
+    }
+
+    public double getRejectionRate() {
+        return evaluations == 0 ? 0 : (double) rejections / evaluations;
+    }
+
+    public double getAverageNanos() {
+        return evaluations == 0 ? 0 : (double) totalNanos / evaluations;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{cost=" + cost + ", evaluations=" + evaluations + ", rejections=" + rejections
+            + ", averageNanos=" + getAverageNanos() + "}";
+    }
+}
@@ -0,0 +1,39 @@
+package com.endava.internship.mocking.service;
+
+import static java.util.Objects.isNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.endava.internship.mocking.model.User;
+import com.endava.internship.mocking.model.ValidationResult;
+
+public class UserLimitRule implements PaymentRule {
+
+    private final Map<Integer, Double> limits = new ConcurrentHashMap<>();
+
+    public void setLimit(Integer userId, double maxAmount) {
+        if (isNull(userId)) {
+            throw new IllegalArgumentException("User id must not be null");
+        }
+        if (maxAmount <= 0) {
+            throw new IllegalArgumentException("Max amount must be greater than 0");
+        }
+        limits.put(userId, maxAmount);
+    }
+
+    public void removeLimit(Integer userId) {
+        limits.remove(userId);
+    }
+
+    @Override
+    public ValidationResult check(User user, double amount) {
+        final Double limit = limits.get(user.getId());
+        return isNull(limit) || amount <= limit ? ValidationResult.VALID : ValidationResult.USER_LIMIT_EXCEEDED;
+    }
+
+    @Override
+    public int cost() {
+        return 5;
+    }
+}
@@ -3,15 +3,54 @@ package com.endava.internship.mocking.service;
 import java.util.UUID;
 
 import com.endava.internship.mocking.model.User;
+import com.endava.internship.mocking.model.ValidationResult;
 
 public interface ValidationService {
-    void validateAmount(Double amount);
+    ValidationResult checkAmount(Double amount);
 
-    void validatePaymentId(UUID paymentId);
+    ValidationResult checkAmount(double amount);
 
-    void validateUserId(Integer userId);
+    ValidationResult checkPaymentId(UUID paymentId);
 
-    void validateUser(User user);
+    ValidationResult checkUserId(Integer userId);
 
-    void validateMessage (String message);
+    ValidationResult checkUserId(int userId);
+
+    ValidationResult checkUser(User user);
+
+    ValidationResult checkMessage(String message);
+
+    ValidationResult checkPayment(User user, double amount);
+
+    default void validateAmount(Double amount) {
+        checkAmount(amount).throwIfInvalid(amount);
+    }
+
+    default void validateAmount(double amount) {
+        checkAmount(amount).throwIfInvalid(amount);
+    }
+
+    default void validatePaymentId(UUID paymentId) {
+        checkPaymentId(paymentId).throwIfInvalid(paymentId);
+    }
+
+    default void validateUserId(Integer userId) {
+        checkUserId(userId).throwIfInvalid(userId);
+    }
+
+    default void validateUserId(int userId) {
+        checkUserId(userId).throwIfInvalid(userId);
+    }
+
+    default void validateUser(User user) {
+        checkUser(user).throwIfInvalid(user.getId());
+    }
+
+    default void validatePayment(User user, double amount) {
+        checkPayment(user, amount).throwIfInvalid(user.getId());
+    }
+
+    default void validateMessage(String message) {
+        checkMessage(message).throwIfInvalid(message);
+    }
 }
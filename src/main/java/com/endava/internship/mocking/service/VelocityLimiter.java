@@ -0,0 +1,218 @@
+package com.endava.internship.mocking.service;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.endava.internship.mocking.model.ValidationResult;
+
+/*
+ * Caps the number of payments and the total amount every user can create per window. Each user gets a pair of
+ * token buckets that refill continuously over the window; buckets are locked one at a time, so users never wait
+ * on each other. A bucket left alone for a whole window is full again and therefore equivalent to no bucket at
+ * all, which is what lets idle users be evicted without changing any decision. Every acquire looks at a few more
+ * buckets through a cursor that keeps going round the map, so eviction costs each request the same small amount
+ * instead of one of them paying for a sweep over every user.
+ */
+public class VelocityLimiter {
+
+    private static final int SWEEP_SLICE = 4;
+
+    private final int maxPayments;
+
+    private final double maxAmount;
+
+    private final long windowNanos;
+
+    private final LongSupplier ticker;
+
+    private final ConcurrentMap<Integer, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    // guarded by sweeping
+    private Iterator<Map.Entry<Integer, Bucket>> sweepCursor;
+
+    private final LongAdder rejections = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public VelocityLimiter(int maxPayments, double maxAmount, Duration window) {
+        this(maxPayments, maxAmount, window, System::nanoTime);
+    }
+
+    VelocityLimiter(int maxPayments, double maxAmount, Duration window, LongSupplier ticker) {
+        if (maxPayments <= 0) {
+            throw new IllegalArgumentException("Max payments must be greater than 0");
+        }
+        if (maxAmount <= 0) {
+            throw new IllegalArgumentException("Max amount must be greater than 0");
+        }
+        if (isNull(window) || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be greater than 0");
+        }
+        this.maxPayments = maxPayments;
+        this.maxAmount = maxAmount;
+        this.windowNanos = window.toNanos();
+        this.ticker = ticker;
+    }
+
+    public ValidationResult tryAcquire(Integer userId, double amount) {
+        if (isNull(userId)) {
+            throw new IllegalArgumentException("User id must not be null");
+        }
+
+        final long now = ticker.getAsLong();
+        ValidationResult result;
+        do {
+            Bucket bucket = buckets.get(userId);
+            if (isNull(bucket)) {
+                bucket = buckets.computeIfAbsent(userId, id -> new Bucket(now));
+            }
+            result = bucket.acquire(amount, now);
+        } while (isNull(result));
+
+        if (!result.isValid()) {
+            rejections.increment();
+        }
+        evictIdle(now, SWEEP_SLICE);
+        return result;
+    }
+
+    // gives back what tryAcquire took for a payment that was not created after all
+    public void release(Integer userId, double amount) {
+        if (isNull(userId)) {
+            throw new IllegalArgumentException("User id must not be null");
+        }
+        final Bucket bucket = buckets.get(userId);
+        if (nonNull(bucket)) {
+            bucket.release(amount, ticker.getAsLong());
+        }
+    }
+
+    public int availablePayments(Integer userId) {
+        final Bucket bucket = buckets.get(userId);
+        return isNull(bucket) ? maxPayments : (int) bucket.payments(ticker.getAsLong());
+    }
+
+    public double availableAmount(Integer userId) {
+        final Bucket bucket = buckets.get(userId);
+        return isNull(bucket) ? maxAmount : bucket.amount(ticker.getAsLong());
+    }
+
+    public void evictIdle() {
+        evictIdle(ticker.getAsLong(), buckets.size());
+    }
+
+    // a caller that finds another one sweeping leaves the slice to it rather than wait
+    private void evictIdle(long now, int limit) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int visited = 0; visited < limit; visited++) {
+                if (isNull(sweepCursor) || !sweepCursor.hasNext()) {
+                    sweepCursor = buckets.entrySet().iterator();
+                    if (!sweepCursor.hasNext()) {
+                        return;
+                    }
+                }
+                final Map.Entry<Integer, Bucket> entry = sweepCursor.next();
+                if (entry.getValue().retireIfIdle(now) && buckets.remove(entry.getKey(), entry.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    public int trackedUsers() {
+        return buckets.size();
+    }
+
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private final class Bucket {
+
+        private double payments;
+
+        private double amount;
+
+        private long updatedAt;
+
+        // set once the sweeper has picked the bucket; callers holding a stale reference retry on a fresh one
+        private boolean retired;
+
+        private Bucket(long now) {
+            this.payments = maxPayments;
+            this.amount = maxAmount;
+            this.updatedAt = now;
+        }
+
+        synchronized ValidationResult acquire(double requested, long now) {
+            if (retired) {
+                return null;
+            }
+            refill(now);
+            if (payments < 1 || amount < requested) {
+                return ValidationResult.RATE_LIMIT_EXCEEDED;
+            }
+            payments -= 1;
+            amount -= requested;
+            return ValidationResult.VALID;
+        }
+
+        // a retired bucket was idle for a whole window, it is full and there is nothing left to give back
+        synchronized void release(double requested, long now) {
+            if (retired) {
+                return;
+            }
+            refill(now);
+            payments = Math.min(maxPayments, payments + 1);
+            amount = Math.min(maxAmount, amount + requested);
+        }
+
+        synchronized double payments(long now) {
+            refill(now);
+            return payments;
+        }
+
+        synchronized double amount(long now) {
+            refill(now);
+            return amount;
+        }
+
+        synchronized boolean retireIfIdle(long now) {
+            if (now - updatedAt >= windowNanos) {
+                retired = true;
+            }
+            return retired;
+        }
+
+        private void refill(long now) {
+            final long elapsed = now - updatedAt;
+            if (elapsed <= 0) {
+                return;
+            }
+            final double refilled = Math.min(1.0, (double) elapsed / windowNanos);
+            payments = Math.min(maxPayments, payments + refilled * maxPayments);
+            amount = Math.min(maxAmount, amount + refilled * maxAmount);
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.endava.internship.mocking.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricRegistryTest {
+
+    MetricRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricRegistry();
+    }
+
+    @Test
+    void shouldReportQuantilesWithinTheHistogramPrecision() {
+        Timer timer = registry.timer("payment_repository", "findById");
+        for (long nanos = 1; nanos <= 10_000; nanos++) {
+            timer.record(nanos * 1_000);
+        }
+
+        TimerSnapshot snapshot = timer.snapshot();
+
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(10_000_000, snapshot.getMaxNanos());
+        assertEquals(5_000_500.0, snapshot.getMeanNanos(), 0.001);
+        assertEquals(5_000_000, snapshot.getValueAtQuantile(0.5), 5_000_000 * 0.04);
+        assertEquals(9_900_000, snapshot.getValueAtQuantile(0.99), 9_900_000 * 0.04);
+        assertEquals(10_000_000, snapshot.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    void shouldCountErrorsByExceptionTypeAndRethrowThem() {
+        Timer timer = registry.timer("payment_repository", "save");
+        IllegalArgumentException failure = new IllegalArgumentException("Payment must not be null");
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> timer.record(() -> {
+                    throw failure;
+                }));
+        assertEquals("saved", timer.record(() -> "saved"));
+
+        TimerSnapshot snapshot = timer.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(1, snapshot.getErrorCount());
+        assertEquals(1L, snapshot.getErrors().get(IllegalArgumentException.class.getName()));
+    }
+
+    @Test
+    void shouldReturnTheSameTimerForTheSameNameAndMethod() {
+        assertSame(registry.timer("payment_service", "createPayment"), registry.timer("payment_service", "createPayment"));
+        assertNotSame(registry.timer("payment_service", "createPayment"), registry.timer("payment_service", "createPayments"));
+    }
+
+    @Test
+    void shouldComputeThroughputBetweenSnapshots() throws InterruptedException {
+        Timer timer = registry.timer("payment_service", "createPayment");
+        MetricsSnapshot earlier = registry.snapshot();
+        for (int i = 0; i < 100; i++) {
+            timer.record(1_000);
+        }
+        Thread.sleep(10);
+
+        double throughput = registry.snapshot().throughputSince(earlier, "payment_service", "createPayment");
+
+        assertThat(throughput).isGreaterThan(0).isLessThanOrEqualTo(100 / 0.01);
+    }
+
+    @Test
+    void shouldExposeTimersErrorsAndGaugesAsText() {
+        AtomicLong size = new AtomicLong(42);
+        registry.gauge("payment_repository_size", size::get);
+        Timer timer = registry.timer("payment_repository", "findById");
+        timer.record(2_000_000_000L);
+        timer.recordError(new IllegalArgumentException());
+
+        String text = registry.scrape();
+
+        assertThat(text)
+                .contains("# TYPE payment_repository_seconds summary\n")
+                .contains("payment_repository_seconds_count{method=\"findById\"} 1\n")
+                .contains("payment_repository_seconds_sum{method=\"findById\"} 2.0\n")
+                .contains("payment_repository_seconds{method=\"findById\",quantile=\"0.5\"} 2.0\n")
+                .contains("# TYPE payment_repository_max_seconds gauge\n"
+                        + "payment_repository_max_seconds{method=\"findById\"} 2.0\n")
+                .doesNotContain("payment_repository_seconds_max")
+                .contains("# TYPE payment_repository_errors_total counter\n")
+                .contains("payment_repository_errors_total{method=\"findById\",exception=\"java.lang.IllegalArgumentException\"} 1\n")
+                .contains("# TYPE payment_repository_size gauge\npayment_repository_size 42\n");
+    }
+}
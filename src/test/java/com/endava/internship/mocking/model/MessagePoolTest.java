@@ -0,0 +1,74 @@
+package com.endava.internship.mocking.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessagePoolTest {
+
+    @Test
+    void shouldReturnTheFirstInstanceOfAnEqualMessage() {
+        MessagePool pool = new MessagePool(16);
+        String first = new String("Payment from user Ben");
+
+        assertThat(pool.intern(first)).isSameAs(first);
+        assertThat(pool.intern(new String("Payment from user Ben"))).isSameAs(first);
+        assertNull(pool.intern(null));
+    }
+
+    @Test
+    void shouldKeepEveryDistinctMessageUpToItsCapacity() {
+        MessagePool pool = new MessagePool(10_000);
+        List<String> first = new ArrayList<>();
+        for (int user = 0; user < 10_000; user++) {
+            first.add(pool.intern("Payment from user " + user));
+        }
+
+        for (int user = 0; user < 10_000; user++) {
+            assertThat(pool.intern("Payment from user " + user)).isSameAs(first.get(user));
+        }
+        assertEquals(10_000, pool.size());
+    }
+
+    @Test
+    void shouldStopPoolingNewMessagesOnceFull() {
+        MessagePool pool = new MessagePool(1);
+        String ben = pool.intern("Payment from user Ben");
+        String ann = pool.intern(new String("Payment from user Ann"));
+
+        assertThat(pool.intern(new String("Payment from user Ben"))).isSameAs(ben);
+        assertThat(pool.intern(new String("Payment from user Ann"))).isNotSameAs(ann).isEqualTo(ann);
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void shouldNotPoolLongMessages() {
+        MessagePool pool = new MessagePool(16);
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            message.append('x');
+        }
+        String first = message.toString();
+
+        pool.intern(first);
+
+        assertThat(pool.intern(message.toString())).isNotSameAs(first);
+    }
+
+    @Test
+    void shouldKeepTheVersionWhenPoolingTheMessageOfAPayment() {
+        MessagePool pool = new MessagePool(16);
+        Payment stored = new Payment(11, 100.00, "Payment from user Ben").withMessage(new String("Edited"));
+        pool.intern("Edited");
+
+        Payment pooled = stored.withPooledMessage(pool);
+
+        assertEquals(stored, pooled);
+        assertEquals(1, pooled.getVersion());
+        assertThat(pooled.withPooledMessage(pool)).isSameAs(pooled);
+    }
+}
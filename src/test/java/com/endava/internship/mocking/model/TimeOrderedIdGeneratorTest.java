@@ -0,0 +1,74 @@
+package com.endava.internship.mocking.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    void shouldProduceVersion7IdsCarryingTheTimestamp() {
+        UUID id = new TimeOrderedIdGenerator(() -> 1_700_000_000_000L).nextId();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(1_700_000_000_000L, id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void shouldKeepIdsOfOneThreadStrictlyIncreasingWhenTheClockStandsStillOrGoesBack() {
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            if (i == 100_000) {
+                clock.addAndGet(-5);
+            }
+            ids.add(generator.nextId());
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void shouldFollowTheClockForward() {
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get);
+
+        UUID earlier = generator.nextId();
+        clock.incrementAndGet();
+        UUID later = generator.nextId();
+
+        assertEquals(1_700_000_000_001L, later.getMostSignificantBits() >>> 16);
+        assertTrue(earlier.compareTo(later) < 0);
+    }
+
+    @Test
+    void shouldNeverRepeatAnIdAcrossThreads() throws InterruptedException {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> 1_700_000_000_000L);
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int task = 0; task < 8; task++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(400_000, ids.size());
+    }
+}
@@ -0,0 +1,195 @@
+package com.endava.internship.mocking.repository;
+
+import com.endava.internship.mocking.model.Payment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmountThresholdViewTest {
+
+    ObservablePaymentRepository paymentRepository;
+
+    @BeforeEach
+    void setUp() {
+        paymentRepository = new ObservablePaymentRepository(new InMemPaymentRepository());
+    }
+
+    @Test
+    void shouldStartWithThePaymentsAlreadyAboveTheThreshold() {
+        Payment large = paymentRepository.save(new Payment(1, 500.00, "Payment from user John"));
+        paymentRepository.save(new Payment(2, 50.00, "Payment from user Maria"));
+
+        AmountThresholdView view = new AmountThresholdView(paymentRepository, 100.00);
+
+        assertThat(view.getPayments()).containsExactly(large);
+    }
+
+    @Test
+    void shouldFollowSavesAndEditsWithoutRescanning() {
+        AmountThresholdView view = new AmountThresholdView(paymentRepository, 100.00);
+        Payment first = paymentRepository.save(new Payment(1, 300.00, "Payment from user John"));
+        paymentRepository.save(new Payment(2, 50.00, "Payment from user Maria"));
+        List<Payment> batch = new ArrayList<>();
+        batch.add(new Payment(3, 200.00, "Payment from user Peter"));
+        paymentRepository.saveAll(batch);
+
+        Payment edited = paymentRepository.editMessage(first.getPaymentId(), "Rent");
+
+        assertThat(view.getPayments()).containsExactly(batch.get(0), edited);
+        assertEquals("Rent", view.getPayments().get(1).getMessage());
+    }
+
+    @Test
+    void shouldReturnTheSameSnapshotUntilTheViewChanges() {
+        AmountThresholdView view = new AmountThresholdView(paymentRepository, 100.00);
+        paymentRepository.save(new Payment(1, 300.00, "Payment from user John"));
+
+        List<Payment> snapshot = view.getPayments();
+        paymentRepository.save(new Payment(2, 50.00, "Payment from user Maria"));
+
+        assertSame(snapshot, view.getPayments());
+        paymentRepository.save(new Payment(3, 200.00, "Payment from user Peter"));
+        assertNotSame(snapshot, view.getPayments());
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> snapshot.clear());
+    }
+
+    @Test
+    void shouldNotifySubscribersOfPaymentsEnteringTheView() {
+        AmountThresholdView view = new AmountThresholdView(paymentRepository, 100.00);
+        List<Payment> received = new ArrayList<>();
+        view.subscribe(new PaymentListener() {
+            @Override
+            public void onSaved(Payment payment) {
+                received.add(payment);
+            }
+
+            @Override
+            public void onEdited(Payment payment) {
+                received.add(payment);
+            }
+
+            @Override
+            public void onDeleted(Payment payment) {
+                received.add(payment);
+            }
+        });
+
+        Payment large = paymentRepository.save(new Payment(1, 300.00, "Payment from user John"));
+        paymentRepository.save(new Payment(2, 50.00, "Payment from user Maria"));
+
+        assertThat(received).containsExactly(large);
+    }
+
+    @Test
+    void shouldDropDeletedPayments() {
+        AmountThresholdView view = new AmountThresholdView(paymentRepository, 100.00);
+        Payment large = paymentRepository.save(new Payment(1, 300.00, "Payment from user John"));
+
+        paymentRepository.delete(large.getPaymentId());
+
+        assertThat(view.getPayments()).isEmpty();
+    }
+
+    @Test
+    void shouldNotBringBackAPaymentDeletedWhileTheInitialScanRuns() {
+        ObservablePaymentRepository deletingRepository = new ObservablePaymentRepository(new InMemPaymentRepository()) {
+            @Override
+            public Stream<Payment> streamByAmountGreaterThan(double amount) {
+                // the scan has read the payment, the delete lands before the view stores it
+                return super.streamByAmountGreaterThan(amount).peek(payment -> delete(payment.getPaymentId()));
+            }
+        };
+        deletingRepository.save(new Payment(1, 300.00, "Payment from user John"));
+
+        AmountThresholdView view = new AmountThresholdView(deletingRepository, 100.00);
+
+        assertThat(view.getPayments()).isEmpty();
+        assertEquals(0, deletingRepository.count());
+    }
+
+    @Test
+    void shouldKeepTheHighestVersionWhenEditsArriveOutOfOrder() {
+        List<PaymentListener> listeners = new ArrayList<>();
+        ObservablePaymentRepository capturingRepository = new ObservablePaymentRepository(new InMemPaymentRepository()) {
+            @Override
+            public void addListener(PaymentListener listener) {
+                listeners.add(listener);
+                super.addListener(listener);
+            }
+        };
+        AmountThresholdView view = new AmountThresholdView(capturingRepository, 100.00);
+        Payment saved = new Payment(1, 300.00, "Payment from user John");
+        Payment firstEdit = saved.withMessage("Rent");
+        Payment secondEdit = firstEdit.withMessage("Rent for May");
+
+        listeners.get(0).onSaved(saved);
+        listeners.get(0).onEdited(secondEdit);
+        listeners.get(0).onEdited(firstEdit);
+
+        assertThat(view.getPayments()).hasSize(1);
+        assertEquals("Rent for May", view.getPayments().get(0).getMessage());
+
+        listeners.get(0).onDeleted(secondEdit);
+        listeners.get(0).onEdited(secondEdit.withMessage("Late edit"));
+        assertThat(view.getPayments()).isEmpty();
+    }
+
+    @Test
+    void shouldNotBringBackADeletedPaymentWhenItsSaveArrivesLate() {
+        List<PaymentListener> listeners = new ArrayList<>();
+        ObservablePaymentRepository capturingRepository = new ObservablePaymentRepository(new InMemPaymentRepository()) {
+            @Override
+            public void addListener(PaymentListener listener) {
+                listeners.add(listener);
+                super.addListener(listener);
+            }
+        };
+        AmountThresholdView view = new AmountThresholdView(capturingRepository, 100.00);
+        Payment deleted = new Payment(1, 300.00, "Payment from user John");
+        Payment kept = new Payment(2, 200.00, "Payment from user Maria");
+
+        listeners.get(0).onDeleted(deleted);
+        listeners.get(0).onSaved(deleted);
+        listeners.get(0).onSaved(kept);
+
+        assertThat(view.getPayments()).containsExactly(kept);
+    }
+
+    @Test
+    void shouldKeepPaymentsInAmountOrderAcrossManyChanges() {
+        AmountThresholdView view = new AmountThresholdView(paymentRepository, 100.00);
+        List<Payment> saved = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            saved.add(paymentRepository.save(new Payment(i, 100.00 + (i * 37) % 1_000, "Payment " + i)));
+        }
+        for (int i = 0; i < 500; i += 3) {
+            paymentRepository.delete(saved.get(i).getPaymentId());
+        }
+
+        List<Payment> payments = view.getPayments();
+
+        assertThat(payments).containsExactlyElementsOf(paymentRepository.findByAmountGreaterThan(100.00).stream()
+                .sorted(SortedPaymentList.ORDER)
+                .collect(Collectors.toList()));
+        assertEquals(payments.size(), view.size());
+        assertEquals(payments.get(payments.size() - 1), payments.stream().reduce((first, second) -> second).get());
+    }
+
+    @Test
+    void shouldStopFollowingTheRepositoryOnceClosed() {
+        AmountThresholdView view = new AmountThresholdView(paymentRepository, 100.00);
+        view.close();
+
+        paymentRepository.save(new Payment(1, 300.00, "Payment from user John"));
+
+        assertEquals(0, view.size());
+    }
+}
@@ -0,0 +1,121 @@
+package com.endava.internship.mocking.repository;
+
+import com.endava.internship.mocking.model.Status;
+import com.endava.internship.mocking.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingUserRepositoryTest {
+
+    @Mock
+    UserRepository userRepository;
+
+    AtomicLong now;
+
+    CachingUserRepository cachingUserRepository;
+
+    User user;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong();
+        cachingUserRepository = new CachingUserRepository(userRepository, 1, Duration.ofSeconds(10), now::get);
+        user = new User(11, "Ben", Status.ACTIVE);
+    }
+
+    @Test
+    void shouldLoadTheUserOnceAndServeItFromTheCache() {
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+
+        assertEquals(Optional.of(user), cachingUserRepository.findById(11));
+        assertEquals(Optional.of(user), cachingUserRepository.findById(11));
+
+        verify(userRepository, times(1)).findById(11);
+        assertEquals(1, cachingUserRepository.hitCount());
+        assertEquals(1, cachingUserRepository.missCount());
+    }
+
+    @Test
+    void shouldNotCacheMissingUsers() {
+        when(userRepository.findById(11)).thenReturn(Optional.empty());
+
+        assertEquals(Optional.empty(), cachingUserRepository.findById(11));
+        assertEquals(Optional.empty(), cachingUserRepository.findById(11));
+
+        verify(userRepository, times(2)).findById(11);
+        assertEquals(0, cachingUserRepository.size());
+    }
+
+    @Test
+    void shouldReloadTheUserWhenTheEntryExpires() {
+        User inactiveUser = new User(11, "Ben", Status.INACTIVE);
+        when(userRepository.findById(11)).thenReturn(Optional.of(user), Optional.of(inactiveUser));
+
+        cachingUserRepository.findById(11);
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertEquals(Optional.of(inactiveUser), cachingUserRepository.findById(11));
+        assertEquals(2, cachingUserRepository.missCount());
+    }
+
+    @Test
+    void shouldReloadTheUserWhenItIsInvalidated() {
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+
+        cachingUserRepository.findById(11);
+        cachingUserRepository.invalidate(11);
+        cachingUserRepository.findById(11);
+
+        verify(userRepository, times(2)).findById(11);
+    }
+
+    @Test
+    void shouldNotCacheAUserInvalidatedWhileItWasLoading() {
+        User deactivated = new User(11, "Ben", Status.INACTIVE);
+        when(userRepository.findById(11)).thenAnswer(invocation -> {
+            cachingUserRepository.invalidate(11);
+            return Optional.of(user);
+        }).thenReturn(Optional.of(deactivated));
+
+        assertEquals(Optional.of(user), cachingUserRepository.findById(11));
+        assertEquals(0, cachingUserRepository.size());
+        assertEquals(Optional.of(deactivated), cachingUserRepository.findById(11));
+        assertEquals(Optional.of(deactivated), cachingUserRepository.findById(11));
+
+        verify(userRepository, times(2)).findById(11);
+    }
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedUserWhenFull() {
+        User otherUser = new User(22, "Ann", Status.ACTIVE);
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+        when(userRepository.findById(22)).thenReturn(Optional.of(otherUser));
+
+        cachingUserRepository.findById(11);
+        cachingUserRepository.findById(22);
+        cachingUserRepository.findById(11);
+
+        assertEquals(2, cachingUserRepository.evictionCount());
+        assertEquals(1, cachingUserRepository.size());
+        verify(userRepository, times(2)).findById(11);
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionIfTheSizeIsNotPositive() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new CachingUserRepository(userRepository, 0, Duration.ofSeconds(1)))
+                .withMessage("Maximum size must be greater than 0");
+    }
+}
@@ -1,11 +1,22 @@
 package com.endava.internship.mocking.repository;
 
+import com.endava.internship.mocking.model.MessagePool;
 import com.endava.internship.mocking.model.Payment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -43,11 +54,143 @@ class InMemPaymentRepositoryTest {
         assertEquals(Optional.of(payment), paymentRepository.findById(payment.getPaymentId()));
     }
 
+    @Test
+    void shouldReturnTheSavedInstanceWithoutCopying() {
+        assertThat(paymentRepository.findById(payment.getPaymentId())).containsSame(payment);
+    }
+
     @Test
     void shouldReturnAllPayments() {
         assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1);
     }
 
+    @Test
+    void shouldStreamAllPayments() {
+        assertThat(paymentRepository.stream()).containsExactlyInAnyOrder(payment, payment1);
+    }
+
+    @Test
+    void shouldReturnPagesInPaymentIdOrder() {
+        paymentRepository.save(payment2);
+        List<Payment> expected = new ArrayList<>(Arrays.asList(payment, payment1, payment2));
+        expected.sort(Comparator.comparing(Payment::getPaymentId));
+
+        List<Payment> firstPage = paymentRepository.findPage(null, 2);
+        List<Payment> secondPage = paymentRepository.findPage(firstPage.get(1).getPaymentId(), 2);
+
+        assertEquals(expected.subList(0, 2), firstPage);
+        assertEquals(expected.subList(2, 3), secondPage);
+        assertThat(paymentRepository.findPage(secondPage.get(0).getPaymentId(), 2)).isEmpty();
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionIfThePageLimitIsNotPositive() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentRepository.findPage(null, 0))
+                .withMessage("Page limit must be greater than 0");
+    }
+
+    @Test
+    void shouldStreamPaymentsWithAmountGreaterThan() {
+        assertThat(paymentRepository.streamByAmountGreaterThan(555.00)).containsExactly(payment1);
+    }
+
+    @Test
+    void shouldSplitTheAmountScanIntoBalancedHalves() {
+        for (int i = 0; i < 10_000; i++) {
+            paymentRepository.save(new Payment(66, 1_000.00 + i, "Insert amount"));
+        }
+
+        Spliterator<Payment> suffix = paymentRepository.streamByAmountGreaterThan(999.00).spliterator();
+        Spliterator<Payment> prefix = suffix.trySplit();
+
+        assertNotNull(prefix);
+        // estimates count payments, the two already saved included
+        assertEquals(5_001, prefix.estimateSize());
+        assertEquals(5_001, suffix.estimateSize());
+        List<Payment> scanned = new ArrayList<>();
+        prefix.forEachRemaining(scanned::add);
+        assertThat(scanned).hasSize(5_000);
+        suffix.forEachRemaining(scanned::add);
+        assertEquals(paymentRepository.findByAmountGreaterThan(999.00), scanned);
+        assertThat(scanned).hasSize(10_000);
+    }
+
+    @Test
+    void shouldSplitTheScanOfManyPaymentsWithTheSameAmount() {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            payments.add(paymentRepository.save(new Payment(66, 1_000.00, "Insert amount")));
+        }
+
+        Spliterator<Payment> suffix = paymentRepository.streamByAmountGreaterThan(999.00).spliterator();
+        List<Payment> scanned = new ArrayList<>();
+        suffix.tryAdvance(scanned::add);
+        Spliterator<Payment> prefix = suffix.trySplit();
+        Spliterator<Payment> middle = suffix.trySplit();
+
+        assertNotNull(prefix);
+        assertNotNull(middle);
+        assertThat(suffix.estimateSize()).isBetween(1L, 9_999L);
+        prefix.forEachRemaining(scanned::add);
+        middle.forEachRemaining(scanned::add);
+        suffix.forEachRemaining(scanned::add);
+        assertThat(scanned).containsExactlyInAnyOrderElementsOf(payments);
+        assertEquals(10_000, paymentRepository.streamByAmountGreaterThan(999.00).parallel().count());
+    }
+
+    @Test
+    void shouldCompareAmountsLikeAPlainScan() {
+        Payment zero = new Payment(66, 0.00, "Insert amount");
+        Payment notANumber = new Payment(77, Double.NaN, "Insert amount");
+        paymentRepository.save(zero);
+        paymentRepository.save(notANumber);
+
+        assertThat(paymentRepository.findByAmountGreaterThan(-0.00)).containsExactly(payment, payment1);
+        assertThat(paymentRepository.findByAmountGreaterThan(1_000.00)).isEmpty();
+        assertThat(paymentRepository.findByAmountGreaterThan(Double.NaN)).isEmpty();
+    }
+
+    @Test
+    void shouldReturnPaymentsWithAmountGreaterThan() {
+        paymentRepository.save(payment2);
+
+        assertThat(paymentRepository.findByAmountGreaterThan(555.00)).containsExactly(payment1, payment2);
+    }
+
+    @Test
+    void shouldReturnAnEmptyListIfNoPaymentExceedsTheAmount() {
+        assertThat(paymentRepository.findByAmountGreaterThan(666.00)).isEmpty();
+    }
+
+    @Test
+    void shouldIndexPaymentsWithTheSameAmount() {
+        Payment samePayment = new Payment(66, 666.00, "Insert amount");
+        paymentRepository.save(samePayment);
+
+        assertThat(paymentRepository.findByAmountGreaterThan(555.00)).containsExactlyInAnyOrder(payment1, samePayment);
+    }
+
+    @Test
+    void shouldReturnThePaymentsOfOneUser() {
+        Payment samePayer = new Payment(33, 100.00, "Insert amount");
+        paymentRepository.save(samePayer);
+
+        assertThat(paymentRepository.findByUserId(33)).containsExactlyInAnyOrder(payment, samePayer);
+        assertThat(paymentRepository.findByUserId(99)).isEmpty();
+    }
+
+    @Test
+    void shouldKeepRunningTotalsPerUser() {
+        paymentRepository.saveAll(Arrays.asList(new Payment(33, 100.00, "Insert amount"), payment2));
+
+        assertEquals(655.00, paymentRepository.sumAmountByUser(33));
+        assertEquals(2, paymentRepository.countByUser(33));
+        assertEquals(777.00, paymentRepository.sumAmountByUser(55));
+        assertEquals(0, paymentRepository.sumAmountByUser(99));
+        assertEquals(0, paymentRepository.countByUser(99));
+    }
+
     @Test
     void shouldThrowIllegalArgumentExceptionIfThePaymentToSaveIsNull() {
         assertThatExceptionOfType(IllegalArgumentException.class)
@@ -83,4 +226,185 @@ class InMemPaymentRepositoryTest {
 
         assertEquals(expectedMessage, editedPayment.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldStoreOneInstanceOfARepeatedMessage() {
+        paymentRepository = new InMemPaymentRepository(new MessagePool(16));
+        Payment first = paymentRepository.save(new Payment(33, 555.00, new String("Payment from user Ben")));
+        Payment second = paymentRepository.save(new Payment(33, 666.00, new String("Payment from user Ben")));
+        Payment third = paymentRepository.save(new Payment(33, 777.00, "Insert amount"));
+        Payment edited = paymentRepository.editMessage(third.getPaymentId(), new String("Payment from user Ben"));
+
+        assertThat(second.getMessage()).isSameAs(first.getMessage());
+        assertThat(paymentRepository.findById(second.getPaymentId()).get().getMessage()).isSameAs(first.getMessage());
+        assertThat(edited.getMessage()).isSameAs(first.getMessage());
+        assertEquals(0, second.getVersion());
+        assertEquals(1, edited.getVersion());
+    }
+
+    @Test
+    void shouldNotShareTheMessagePoolOfAnotherRepository() {
+        InMemPaymentRepository other = new InMemPaymentRepository();
+        Payment first = paymentRepository.save(new Payment(33, 555.00, new String("Payment from user Ben")));
+
+        Payment second = other.save(new Payment(33, 555.00, new String("Payment from user Ben")));
+
+        assertThat(second.getMessage()).isNotSameAs(first.getMessage());
+    }
+
+    @Test
+    void shouldEditTheMessageOnlyAtTheExpectedVersion() {
+        Payment editedPayment = paymentRepository.editMessage(payment.getPaymentId(), 0, "The payment was canceled");
+
+        assertEquals(1, editedPayment.getVersion());
+        assertEquals("The payment was canceled", paymentRepository.findById(payment.getPaymentId()).get().getMessage());
+        assertThatExceptionOfType(ConcurrentModificationException.class)
+                .isThrownBy(() -> paymentRepository.editMessage(payment.getPaymentId(), 0, "The payment was refunded"))
+                .withMessage("Payment with id " + payment.getPaymentId() + " is no longer at version 0");
+        assertEquals("The payment was canceled", paymentRepository.findById(payment.getPaymentId()).get().getMessage());
+    }
+
+    @Test
+    void shouldLetOnlyOneWriterWinTheSameVersion() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Boolean>> edits = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String message = "Edited by writer " + i;
+            edits.add(() -> {
+                try {
+                    paymentRepository.editMessage(payment.getPaymentId(), 0, message);
+                    return true;
+                } catch (ConcurrentModificationException e) {
+                    return false;
+                }
+            });
+        }
+
+        int edited = 0;
+        for (Future<Boolean> result : executor.invokeAll(edits)) {
+            edited += result.get() ? 1 : 0;
+        }
+        executor.shutdown();
+
+        assertEquals(1, edited);
+        assertEquals(1, paymentRepository.findById(payment.getPaymentId()).get().getVersion());
+    }
+
+    @Test
+    void shouldSaveAPaymentOnlyOnceWhenSavedConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Boolean>> saves = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            saves.add(() -> {
+                try {
+                    paymentRepository.save(payment2);
+                    return true;
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            });
+        }
+
+        int saved = 0;
+        for (Future<Boolean> result : executor.invokeAll(saves)) {
+            saved += result.get() ? 1 : 0;
+        }
+        executor.shutdown();
+
+        assertEquals(1, saved);
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1, payment2);
+    }
+
+    @Test
+    void shouldLeaveNoIndexEntriesForPaymentsDeletedWhileTheyWereSaved() throws Exception {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            payments.add(new Payment(77, 1_000.00 + i, "Payment " + i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> deletes = executor.submit(() -> {
+            for (Payment saved : payments) {
+                while (true) {
+                    try {
+                        paymentRepository.delete(saved.getPaymentId());
+                        break;
+                    } catch (NoSuchElementException e) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+
+        for (int i = 0; i < payments.size(); i += 2) {
+            paymentRepository.save(payments.get(i));
+            paymentRepository.saveAll(Arrays.asList(payments.get(i + 1)));
+        }
+        deletes.get();
+        executor.shutdown();
+
+        assertEquals(0, paymentRepository.countByUser(77));
+        assertEquals(0, paymentRepository.sumAmountByUser(77));
+        assertThat(paymentRepository.findByAmountGreaterThan(999.00)).isEmpty();
+        assertThat(paymentRepository.findPage(null, 10)).containsExactlyInAnyOrder(payment, payment1);
+    }
+
+    @Test
+    void shouldNotShowAnyPaymentOfABatchThatIsRefused() {
+        Payment payment3 = new Payment(66, 888.00, "Insert amount");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentRepository.saveAll(Arrays.asList(payment2, payment3, payment)));
+
+        assertFalse(paymentRepository.findById(payment2.getPaymentId()).isPresent());
+        assertEquals(2, paymentRepository.count());
+        assertEquals(0, paymentRepository.countByUser(66));
+        assertThat(paymentRepository.findByAmountGreaterThan(0.00)).containsExactly(payment, payment1);
+        paymentRepository.save(payment2);
+    }
+
+    @Test
+    void shouldNotChangeThePreviouslyReadPaymentWhenTheMessageIsEdited() {
+        Payment before = paymentRepository.findById(payment.getPaymentId()).get();
+
+        paymentRepository.editMessage(payment.getPaymentId(), "The payment was canceled");
+
+        assertEquals("Insert amount", before.getMessage());
+        assertEquals("The payment was canceled", paymentRepository.findById(payment.getPaymentId()).get().getMessage());
+    }
+
+    @Test
+    void shouldSaveAllPayments() {
+        Payment payment3 = new Payment(66, 888.00, "Insert amount");
+
+        assertThat(paymentRepository.saveAll(Arrays.asList(payment2, payment3))).containsExactly(payment2, payment3);
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1, payment2, payment3);
+        assertThat(paymentRepository.findByAmountGreaterThan(666.00)).containsExactly(payment2, payment3);
+    }
+
+    @Test
+    void shouldRejectTheWholeBatchIfOnePaymentIsAlreadySaved() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentRepository.saveAll(Arrays.asList(payment2, payment)))
+                .withMessage("Payment with id " + payment.getPaymentId() + " already saved");
+
+        assertEquals(Optional.empty(), paymentRepository.findById(payment2.getPaymentId()));
+    }
+
+    @Test
+    void shouldDeleteAPaymentFromEveryIndex() {
+        paymentRepository.save(payment2);
+
+        assertEquals(payment1, paymentRepository.delete(payment1.getPaymentId()));
+
+        assertFalse(paymentRepository.findById(payment1.getPaymentId()).isPresent());
+        assertThat(paymentRepository.findByAmountGreaterThan(600.00)).containsExactly(payment2);
+        assertThat(paymentRepository.findByUserId(44)).isEmpty();
+        assertEquals(0, paymentRepository.countByUser(44));
+        assertEquals(0.00, paymentRepository.sumAmountByUser(44));
+        assertThat(paymentRepository.findPage(null, 10)).containsExactlyInAnyOrder(payment, payment2);
+        assertEquals(2, paymentRepository.count());
+        assertThatExceptionOfType(NoSuchElementException.class)
+                .isThrownBy(() -> paymentRepository.delete(payment1.getPaymentId()))
+                .withMessage("Payment with id " + payment1.getPaymentId() + " not found");
+    }
+}
@@ -0,0 +1,83 @@
+package com.endava.internship.mocking.repository;
+
+import com.endava.internship.mocking.model.Status;
+import com.endava.internship.mocking.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemUserRepositoryTest {
+
+    InMemUserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = new InMemUserRepository();
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionIfTheUserIdIsNull() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> userRepository.findById(null))
+                .withMessage("User id must not be null");
+    }
+
+    @Test
+    void shouldReturnTheDefaultUsers() {
+        assertEquals(Optional.of(new User(1, "John", Status.ACTIVE)), userRepository.findById(1));
+        assertEquals(Optional.of(new User(5, "David", Status.INACTIVE)), userRepository.findById(5));
+    }
+
+    @Test
+    void shouldReturnAnEmptyOptionalIfTheUserIsUnknown() {
+        assertEquals(Optional.empty(), userRepository.findById(6));
+    }
+
+    @Test
+    void shouldFindAUserAddedAtRuntime() {
+        User user = new User(42, "Ben", Status.ACTIVE);
+
+        userRepository.save(user);
+
+        assertEquals(Optional.of(user), userRepository.findById(42));
+    }
+
+    @Test
+    void shouldReplaceAUserWithTheSameId() {
+        User user = new User(1, "Johnny", Status.INACTIVE);
+
+        userRepository.save(user);
+
+        assertEquals(Optional.of(user), userRepository.findById(1));
+    }
+
+    @Test
+    void shouldFindEveryUserLoadedInBulk() {
+        List<User> users = new ArrayList<>();
+        for (int id = -5_000; id < 5_000; id++) {
+            users.add(new User(id, "User " + id, Status.ACTIVE));
+        }
+
+        userRepository = new InMemUserRepository(users);
+
+        for (User user : users) {
+            assertEquals(Optional.of(user), userRepository.findById(user.getId()));
+        }
+        assertEquals(Optional.empty(), userRepository.findById(5_000));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionIfTheUserToSaveHasNoId() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> userRepository.save(new User(null, "Ben", Status.ACTIVE)))
+                .withMessage("User id must not be null");
+        assertThat(userRepository.findById(0)).isEmpty();
+    }
+}
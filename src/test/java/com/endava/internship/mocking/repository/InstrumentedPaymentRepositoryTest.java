@@ -0,0 +1,56 @@
+package com.endava.internship.mocking.repository;
+
+import com.endava.internship.mocking.metrics.MetricRegistry;
+import com.endava.internship.mocking.metrics.MetricsSnapshot;
+import com.endava.internship.mocking.metrics.TimerSnapshot;
+import com.endava.internship.mocking.model.Payment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedPaymentRepositoryTest {
+
+    MetricRegistry registry;
+
+    PaymentRepository paymentRepository;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricRegistry();
+        paymentRepository = new InstrumentedPaymentRepository(new InMemPaymentRepository(), registry);
+    }
+
+    @Test
+    void shouldTimeEveryCallAndDelegateTheResult() {
+        Payment payment = paymentRepository.save(new Payment(1, 100.00, "Payment from user John"));
+
+        assertEquals(payment, paymentRepository.findById(payment.getPaymentId()).get());
+        assertFalse(paymentRepository.findById(UUID.randomUUID()).isPresent());
+
+        MetricsSnapshot snapshot = registry.snapshot();
+        assertEquals(1, snapshot.getTimer("payment_repository", "save").map(TimerSnapshot::getCount).get());
+        assertEquals(2, snapshot.getTimer("payment_repository", "findById").map(TimerSnapshot::getCount).get());
+    }
+
+    @Test
+    void shouldCountFailedCallsByExceptionType() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentRepository.save(null));
+
+        TimerSnapshot save = registry.snapshot().getTimer("payment_repository", "save").get();
+        assertEquals(1, save.getErrorCount());
+        assertEquals(1L, save.getErrors().get(IllegalArgumentException.class.getName()));
+    }
+
+    @Test
+    void shouldExposeTheRepositorySizeAsAGauge() {
+        paymentRepository.save(new Payment(1, 100.00, "Payment from user John"));
+        paymentRepository.save(new Payment(2, 200.00, "Payment from user Maria"));
+
+        assertEquals(2L, registry.snapshot().getGauges().get("payment_repository_size"));
+    }
+}
@@ -0,0 +1,342 @@
+package com.endava.internship.mocking.repository;
+
+import com.endava.internship.mocking.model.Payment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournaledPaymentRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    JournaledPaymentRepository paymentRepository;
+
+    Payment payment;
+
+    Payment payment1;
+
+    Payment payment2;
+
+    @BeforeEach
+    void setUp() {
+        paymentRepository = new JournaledPaymentRepository(directory);
+        payment = new Payment(33, 555.00, "Insert amount");
+        payment1 = new Payment(44, 666.00, "Insert amount");
+        payment2 = new Payment(55, 777.00, null);
+        paymentRepository.save(payment);
+        paymentRepository.save(payment1);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        paymentRepository.close();
+    }
+
+    @Test
+    void shouldRecoverSavedAndEditedPaymentsAfterRestart() throws IOException {
+        paymentRepository.save(payment2);
+        paymentRepository.editMessage(payment.getPaymentId(), "The payment was canceled");
+
+        reopen();
+
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1, payment2);
+        assertEquals("The payment was canceled", paymentRepository.findById(payment.getPaymentId()).get().getMessage());
+        assertNull(paymentRepository.findById(payment2.getPaymentId()).get().getMessage());
+        assertThat(paymentRepository.findByAmountGreaterThan(600.00)).containsExactlyInAnyOrder(payment1, payment2);
+    }
+
+    @Test
+    void shouldShareOneInstanceOfARepeatedMessageAfterRestart() throws IOException {
+        reopen();
+
+        assertThat(paymentRepository.findById(payment1.getPaymentId()).get().getMessage())
+                .isSameAs(paymentRepository.findById(payment.getPaymentId()).get().getMessage());
+    }
+
+    @Test
+    void shouldRecoverABatchAfterRestart() throws IOException {
+        Payment payment3 = new Payment(66, 888.00, "Insert amount");
+        paymentRepository.saveAll(Arrays.asList(payment2, payment3));
+
+        reopen();
+
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1, payment2, payment3);
+    }
+
+    @Test
+    void shouldIgnoreATornRecordAtTheEndOfTheLog() throws IOException {
+        paymentRepository.close();
+        Files.write(directory.resolve(JournaledPaymentRepository.LOG_FILE), new byte[]{0, 0, 0, 42, 1, 2},
+                StandardOpenOption.APPEND);
+
+        reopen();
+        paymentRepository.save(payment2);
+        reopen();
+
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1, payment2);
+    }
+
+    @Test
+    void shouldRecoverFromASnapshotAndTheLogWrittenAfterIt() throws IOException {
+        paymentRepository.checkpoint();
+        assertEquals(0, Files.size(directory.resolve(JournaledPaymentRepository.LOG_FILE)));
+        paymentRepository.editMessage(payment1.getPaymentId(), "Refunded");
+
+        reopen();
+
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1);
+        assertEquals("Refunded", paymentRepository.findById(payment1.getPaymentId()).get().getMessage());
+    }
+
+    @Test
+    void shouldRecoverTheVersionFromTheSnapshotAndTheLog() throws IOException {
+        paymentRepository.editMessage(payment.getPaymentId(), 0, "Refunded");
+        paymentRepository.checkpoint();
+        paymentRepository.editMessage(payment.getPaymentId(), 1, "Refunded twice");
+
+        reopen();
+
+        assertEquals(2, paymentRepository.findById(payment.getPaymentId()).get().getVersion());
+        assertThatExceptionOfType(ConcurrentModificationException.class)
+                .isThrownBy(() -> paymentRepository.editMessage(payment.getPaymentId(), 1, "Refunded again"))
+                .withMessage("Payment with id " + payment.getPaymentId() + " is no longer at version 1");
+        assertEquals("Refunded twice", paymentRepository.findById(payment.getPaymentId()).get().getMessage());
+    }
+
+    @Test
+    void shouldNotReapplyEditsTheSnapshotHoldsAfterACrashBeforeTheLogWasTruncated() throws IOException {
+        paymentRepository.editMessage(payment.getPaymentId(), "Refunded");
+        paymentRepository.editMessage(payment.getPaymentId(), "Refunded twice");
+        Path log = directory.resolve(JournaledPaymentRepository.LOG_FILE);
+        byte[] logBeforeCheckpoint = Files.readAllBytes(log);
+        paymentRepository.checkpoint();
+        paymentRepository.close();
+
+        // the snapshot was written but the crash came before the log was truncated
+        Files.write(log, logBeforeCheckpoint);
+        paymentRepository = new JournaledPaymentRepository(directory);
+
+        Payment recovered = paymentRepository.findById(payment.getPaymentId()).get();
+        assertEquals(2, recovered.getVersion());
+        assertEquals("Refunded twice", recovered.getMessage());
+        assertEquals(3, paymentRepository.editMessage(payment.getPaymentId(), 2, "Refunded again").getVersion());
+    }
+
+    @Test
+    void shouldCompactTheLogOnceTheSnapshotThresholdIsReached() throws IOException {
+        paymentRepository.close();
+        paymentRepository = new JournaledPaymentRepository(directory, 3);
+
+        Path log = directory.resolve(JournaledPaymentRepository.LOG_FILE);
+        long logBeforeCheckpoint = Files.size(log);
+
+        paymentRepository.save(payment2);
+        // the checkpoint runs in the background, closing waits for it
+        paymentRepository.close();
+
+        assertTrue(Files.exists(directory.resolve(JournaledPaymentRepository.SNAPSHOT_FILE)));
+        assertThat(Files.size(log)).isLessThan(logBeforeCheckpoint);
+        paymentRepository = new JournaledPaymentRepository(directory);
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1, payment2);
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionIfThePaymentIsAlreadySaved() throws IOException {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentRepository.save(payment))
+                .withMessage("Payment with id " + payment.getPaymentId() + " already saved");
+
+        reopen();
+        assertThat(paymentRepository.findAll()).hasSize(2);
+    }
+
+    @Test
+    void shouldThrowNoSuchElementExceptionIfThePaymentDoesNotExist() {
+        assertThatExceptionOfType(NoSuchElementException.class)
+                .isThrownBy(() -> paymentRepository.editMessage(payment2.getPaymentId(), "The payment was canceled"))
+                .withMessage("Payment with id " + payment2.getPaymentId() + " not found");
+    }
+
+    @Test
+    void shouldCutOffARecordThatWasOnlyPartlyWritten() throws IOException {
+        FailingChannel[] channel = new FailingChannel[1];
+        paymentRepository.close();
+        paymentRepository = new JournaledPaymentRepository(directory, 100,
+                opened -> channel[0] = new FailingChannel(opened));
+        Payment payment3 = new Payment(66, 888.00, "Insert amount");
+
+        channel[0].failWrites = true;
+        assertThatExceptionOfType(UncheckedIOException.class).isThrownBy(() -> paymentRepository.save(payment2));
+        channel[0].failWrites = false;
+        paymentRepository.save(payment3);
+
+        assertFalse(paymentRepository.findById(payment2.getPaymentId()).isPresent());
+        reopen();
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1, payment3);
+    }
+
+    @Test
+    void shouldNotApplyAWriteWhoseSyncFailed() throws IOException {
+        FailingChannel[] channel = new FailingChannel[1];
+        paymentRepository.close();
+        paymentRepository = new JournaledPaymentRepository(directory, 100,
+                opened -> channel[0] = new FailingChannel(opened));
+
+        channel[0].failForce = true;
+        assertThatExceptionOfType(UncheckedIOException.class).isThrownBy(() -> paymentRepository.save(payment2));
+        assertThatExceptionOfType(UncheckedIOException.class)
+                .isThrownBy(() -> paymentRepository.delete(payment.getPaymentId()));
+        channel[0].failForce = false;
+
+        assertFalse(paymentRepository.findById(payment2.getPaymentId()).isPresent());
+        assertTrue(paymentRepository.findById(payment.getPaymentId()).isPresent());
+        paymentRepository.save(payment2);
+        reopen();
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1, payment2);
+    }
+
+    private void reopen() throws IOException {
+        paymentRepository.close();
+        paymentRepository = new JournaledPaymentRepository(directory);
+    }
+
+    @Test
+    void shouldNotRecoverADeletedPayment() throws IOException {
+        paymentRepository.delete(payment.getPaymentId());
+
+        reopen();
+
+        assertThat(paymentRepository.findAll()).containsExactly(payment1);
+    }
+
+    // fails on demand, a failing write leaves half of the buffer in the file the way a full disk does
+    private static class FailingChannel extends FileChannel {
+
+        private final FileChannel delegate;
+
+        volatile boolean failWrites;
+
+        volatile boolean failForce;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            if (failWrites) {
+                ByteBuffer half = source.duplicate();
+                half.limit(source.position() + source.remaining() / 2);
+                delegate.write(half);
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(source);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failForce) {
+                throw new IOException("Input/output error");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            return delegate.read(destination);
+        }
+
+        @Override
+        public long read(ByteBuffer[] destinations, int offset, int length) throws IOException {
+            return delegate.read(destinations, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+            return delegate.write(sources, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException {
+            return delegate.transferFrom(source, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer destination, long position) throws IOException {
+            return delegate.read(destination, position);
+        }
+
+        @Override
+        public int write(ByteBuffer source, long position) throws IOException {
+            return delegate.write(source, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.endava.internship.mocking.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferTest {
+
+    @Test
+    void shouldRefuseOffersOnceFullAndDrainInOrder() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(3);
+
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(drained, 3));
+        assertTrue(buffer.offer(4));
+        assertEquals(2, buffer.drainTo(drained, 10));
+        assertThat(drained).containsExactly(0, 1, 2, 3, 4);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void shouldDeliverEveryElementOfConcurrentProducers() throws Exception {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            int first = p * 10_000;
+            producers.add(executor.submit(() -> {
+                for (int i = first; i < first + 10_000; i++) {
+                    while (!buffer.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+
+        List<Integer> drained = new ArrayList<>();
+        while (drained.size() < 40_000) {
+            buffer.drainTo(drained, 32);
+        }
+        for (Future<?> producer : producers) {
+            producer.get();
+        }
+        executor.shutdown();
+
+        assertEquals(40_000, new HashSet<>(drained).size());
+    }
+}
@@ -0,0 +1,248 @@
+package com.endava.internship.mocking.repository;
+
+import com.endava.internship.mocking.model.Payment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapPaymentRepositoryTest {
+
+    OffHeapPaymentRepository paymentRepository;
+
+    Payment payment;
+
+    Payment payment1;
+
+    Payment payment2;
+
+    @BeforeEach
+    void setUp() {
+        paymentRepository = new OffHeapPaymentRepository(2);
+        payment = new Payment(33, 555.00, "Insert amount");
+        payment1 = new Payment(44, 666.00, "Plată în lei");
+        payment2 = new Payment(55, 777.00, null);
+        paymentRepository.save(payment);
+        paymentRepository.save(payment1);
+    }
+
+    @Test
+    void shouldReturnPaymentByIdWithAllFields() {
+        Payment found = paymentRepository.findById(payment1.getPaymentId()).get();
+
+        assertEquals(payment1, found);
+        assertEquals(44, found.getUserId());
+        assertEquals(666.00, found.getAmount());
+        assertEquals("Plată în lei", found.getMessage());
+    }
+
+    @Test
+    void shouldReturnAnEmptyOptionalForAnUnknownPayment() {
+        assertEquals(Optional.empty(), paymentRepository.findById(payment2.getPaymentId()));
+    }
+
+    @Test
+    void shouldKeepANullMessage() {
+        paymentRepository.save(payment2);
+
+        assertNull(paymentRepository.findById(payment2.getPaymentId()).get().getMessage());
+    }
+
+    @Test
+    void shouldReturnAllPayments() {
+        assertThat(paymentRepository.findAll()).containsExactly(payment, payment1);
+    }
+
+    @Test
+    void shouldScanTheAmountColumn() {
+        paymentRepository.save(payment2);
+
+        assertThat(paymentRepository.findByAmountGreaterThan(555.00)).containsExactly(payment1, payment2);
+    }
+
+    @Test
+    void shouldAggregateThePaymentsOfOneUser() {
+        Payment samePayer = new Payment(33, 100.00, "Insert amount");
+        paymentRepository.save(samePayer);
+
+        assertThat(paymentRepository.findByUserId(33)).containsExactly(payment, samePayer);
+        assertEquals(655.00, paymentRepository.sumAmountByUser(33));
+        assertEquals(2, paymentRepository.countByUser(33));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionIfThePaymentIsAlreadySaved() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentRepository.save(payment))
+                .withMessage("Payment with id " + payment.getPaymentId() + " already saved");
+    }
+
+    @Test
+    void shouldRejectTheWholeBatchIfOnePaymentIsAlreadySaved() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentRepository.saveAll(Arrays.asList(payment2, payment)));
+
+        assertEquals(2, paymentRepository.size());
+    }
+
+    @Test
+    void shouldSetNewMessage() {
+        Payment editedPayment = paymentRepository.editMessage(payment.getPaymentId(), "The payment was canceled");
+
+        assertEquals("The payment was canceled", editedPayment.getMessage());
+        assertEquals("The payment was canceled", paymentRepository.findById(payment.getPaymentId()).get().getMessage());
+        assertEquals("Plată în lei", paymentRepository.findById(payment1.getPaymentId()).get().getMessage());
+    }
+
+    @Test
+    void shouldEditTheMessageOnlyAtTheExpectedVersion() {
+        paymentRepository.editMessage(payment.getPaymentId(), "The payment was canceled");
+
+        assertEquals(1, paymentRepository.findById(payment.getPaymentId()).get().getVersion());
+        assertThatExceptionOfType(ConcurrentModificationException.class)
+                .isThrownBy(() -> paymentRepository.editMessage(payment.getPaymentId(), 0, "The payment was refunded"))
+                .withMessage("Payment with id " + payment.getPaymentId() + " is no longer at version 0");
+        assertEquals(2, paymentRepository.editMessage(payment.getPaymentId(), 1, "The payment was refunded").getVersion());
+        assertEquals(0, paymentRepository.findById(payment1.getPaymentId()).get().getVersion());
+    }
+
+    @Test
+    void shouldThrowNoSuchElementExceptionIfThePaymentDoesNotExist() {
+        assertThatExceptionOfType(NoSuchElementException.class)
+                .isThrownBy(() -> paymentRepository.editMessage(payment2.getPaymentId(), "The payment was canceled"))
+                .withMessage("Payment with id " + payment2.getPaymentId() + " not found");
+    }
+
+    @Test
+    void shouldGrowAndKeepEveryPaymentAfterManyInsertsAndEdits() {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            payments.add(new Payment(i, i, "Payment " + i));
+        }
+        paymentRepository.saveAll(payments);
+        for (int i = 0; i < 5_000; i += 2) {
+            paymentRepository.editMessage(payments.get(i).getPaymentId(), "Edited payment number " + i);
+        }
+
+        for (int i = 0; i < 5_000; i++) {
+            Payment found = paymentRepository.findById(payments.get(i).getPaymentId()).get();
+            assertEquals(i % 2 == 0 ? "Edited payment number " + i : "Payment " + i, found.getMessage());
+            assertEquals(i, found.getAmount());
+        }
+        assertEquals(5_002, paymentRepository.size());
+    }
+
+    @Test
+    void shouldPageThroughEveryPaymentInIdOrder() {
+        List<Payment> payments = new ArrayList<>(Arrays.asList(payment, payment1));
+        for (int i = 0; i < 2_500; i++) {
+            payments.add(new Payment(i, i, "Payment " + i));
+        }
+        paymentRepository.saveAll(payments.subList(2, payments.size()));
+        payments.sort(Comparator.comparing(Payment::getPaymentId));
+
+        List<Payment> pages = new ArrayList<>();
+        List<Payment> page = paymentRepository.findPage(null, 1_000);
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            page = paymentRepository.findPage(page.get(page.size() - 1).getPaymentId(), 1_000);
+        }
+
+        assertEquals(payments, pages);
+    }
+
+    @Test
+    void shouldStreamLazilyAndInParallel() {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            payments.add(new Payment(i, i, "Payment " + i));
+        }
+        paymentRepository.saveAll(payments);
+
+        assertEquals(5_002, paymentRepository.stream().parallel().count());
+        assertThat(paymentRepository.streamByAmountGreaterThan(4_997.00).collect(Collectors.toList()))
+                .containsExactly(payments.get(4_998), payments.get(4_999));
+        assertThat(paymentRepository.stream().limit(1)).containsExactly(payment);
+    }
+
+    @Test
+    void shouldKeepEveryOtherPaymentReachableAfterDeletingHalfOfThem() {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            payments.add(new Payment(i, i, "Payment " + i));
+        }
+        paymentRepository.saveAll(payments);
+
+        for (int i = 0; i < 5_000; i += 2) {
+            assertEquals(payments.get(i), paymentRepository.delete(payments.get(i).getPaymentId()));
+        }
+
+        for (int i = 0; i < 5_000; i++) {
+            Optional<Payment> found = paymentRepository.findById(payments.get(i).getPaymentId());
+            assertEquals(i % 2 != 0, found.isPresent());
+            found.ifPresent(p -> assertEquals(p.getAmount(), Double.parseDouble(p.getMessage().substring(8))));
+        }
+        assertEquals(2_502, paymentRepository.size());
+        assertEquals(2_502, paymentRepository.stream().count());
+        assertThatExceptionOfType(NoSuchElementException.class)
+                .isThrownBy(() -> paymentRepository.delete(payments.get(0).getPaymentId()));
+    }
+
+    @Test
+    void shouldNotHideALivePaymentFromAScanThatAlreadyPassedADeletedOne() {
+        List<Payment> payments = new ArrayList<>(Arrays.asList(payment, payment1));
+        for (int i = 0; i < 10; i++) {
+            payments.add(new Payment(i, i, "Payment " + i));
+        }
+        paymentRepository.saveAll(payments.subList(2, payments.size()));
+
+        List<Payment> scanned = new ArrayList<>();
+        Spliterator<Payment> scan = paymentRepository.stream().spliterator();
+        scan.tryAdvance(scanned::add);
+        scan.tryAdvance(scanned::add);
+        paymentRepository.delete(payment.getPaymentId());
+        scan.forEachRemaining(scanned::add);
+
+        assertThat(scanned).containsExactlyInAnyOrderElementsOf(payments);
+    }
+
+    @Test
+    void shouldPageInIdOrderAcrossDeletesAndNewSaves() {
+        Random random = new Random(7);
+        List<Payment> payments = new ArrayList<>(Arrays.asList(payment, payment1));
+        for (int i = 0; i < 2_000; i++) {
+            payments.add(paymentRepository.save(new Payment(i, i, "Payment " + i)));
+        }
+        for (int i = 0; i < 1_500; i++) {
+            Payment deleted = payments.remove(random.nextInt(payments.size()));
+            paymentRepository.delete(deleted.getPaymentId());
+        }
+        for (int i = 0; i < 500; i++) {
+            payments.add(paymentRepository.save(new Payment(i, i, "New payment " + i)));
+        }
+        payments.sort(Comparator.comparing(Payment::getPaymentId));
+
+        List<Payment> pages = new ArrayList<>();
+        List<Payment> page = paymentRepository.findPage(null, 100);
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            page = paymentRepository.findPage(page.get(page.size() - 1).getPaymentId(), 100);
+        }
+
+        assertEquals(payments, pages);
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrderElementsOf(payments);
+    }
+}
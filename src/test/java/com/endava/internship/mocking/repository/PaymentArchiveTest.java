@@ -0,0 +1,218 @@
+package com.endava.internship.mocking.repository;
+
+import com.endava.internship.mocking.model.Payment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    InMemPaymentRepository source;
+
+    @BeforeEach
+    void setUp() {
+        source = new InMemPaymentRepository();
+    }
+
+    @Test
+    void shouldRoundTripPaymentsThroughTheBinaryFormatWithASmallBuffer() {
+        List<Payment> payments = IntStream.range(0, 5_000)
+                .mapToObj(i -> new Payment(i % 7, i + 0.5, i % 10 == 0 ? null : "Payment " + i))
+                .collect(Collectors.toList());
+        source.saveAll(payments);
+        Path file = directory.resolve("payments.bin");
+
+        assertEquals(5_000, new PaymentArchive(source, 64).exportBinary(file));
+        InMemPaymentRepository target = new InMemPaymentRepository();
+        PaymentImportResult result = new PaymentArchive(target, 64).importBinary(file);
+
+        assertEquals(5_000, result.getImported());
+        assertEquals(0, result.getDuplicates());
+        assertThat(target.findAll()).containsExactlyInAnyOrderElementsOf(payments);
+        assertEquals(null, target.findById(payments.get(0).getPaymentId()).get().getMessage());
+    }
+
+    @Test
+    void shouldImportAMessageLargerThanTheBuffer() {
+        char[] longMessage = new char[1_000];
+        Arrays.fill(longMessage, 'x');
+        Payment payment = source.save(new Payment(1, 10.00, new String(longMessage)));
+        Path file = directory.resolve("payments.bin");
+        new PaymentArchive(source, 64).exportBinary(file);
+
+        InMemPaymentRepository target = new InMemPaymentRepository();
+        new PaymentArchive(target, 64).importBinary(file);
+
+        assertEquals(payment.getMessage(), target.findById(payment.getPaymentId()).get().getMessage());
+    }
+
+    @Test
+    void shouldSkipPaymentsThatAreAlreadySaved() {
+        Payment existing = source.save(new Payment(1, 10.00, "Payment from user John"));
+        source.save(new Payment(2, 20.00, "Payment from user Maria"));
+        Path file = directory.resolve("payments.bin");
+        new PaymentArchive(source).exportBinary(file);
+
+        InMemPaymentRepository target = new InMemPaymentRepository();
+        target.save(existing);
+        PaymentImportResult result = new PaymentArchive(target).importBinary(file);
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(2, target.count());
+    }
+
+    @Test
+    void shouldLetARefusalForAnythingButADuplicateThrough() {
+        source.save(new Payment(1, 10.00, "Payment from user John"));
+        source.save(new Payment(2, -20.00, "Payment from user Maria"));
+        Path file = directory.resolve("payments.csv");
+        new PaymentArchive(source).exportCsv(file);
+
+        InMemPaymentRepository target = new InMemPaymentRepository() {
+            @Override
+            public Payment save(Payment payment) {
+                if (payment.getAmount() <= 0) {
+                    throw new IllegalArgumentException("Amount must be greater than 0");
+                }
+                return super.save(payment);
+            }
+
+            @Override
+            public List<Payment> saveAll(List<Payment> payments) {
+                payments.forEach(payment -> {
+                    if (payment.getAmount() <= 0) {
+                        throw new IllegalArgumentException("Amount must be greater than 0");
+                    }
+                });
+                return super.saveAll(payments);
+            }
+        };
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new PaymentArchive(target).importCsv(file))
+                .withMessage("Amount must be greater than 0");
+    }
+
+    @Test
+    void shouldThrowIllegalStateExceptionForATruncatedArchive() throws IOException {
+        source.save(new Payment(1, 10.00, "Payment from user John"));
+        Path file = directory.resolve("payments.bin");
+        new PaymentArchive(source).exportBinary(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> new PaymentArchive(new InMemPaymentRepository()).importBinary(file))
+                .withMessageStartingWith("Truncated payment archive");
+    }
+
+    @Test
+    void shouldImportAnArchiveWrittenBeforePaymentsHadAVersion() throws IOException {
+        Payment john = new Payment(1, 10.00, "Payment from user John");
+        Payment maria = new Payment(2, 20.00, null);
+        byte[] message = PaymentRecords.encode(john.getMessage());
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + PaymentRecords.unversionedPaymentSize(message)
+                + PaymentRecords.unversionedPaymentSize(null));
+        buffer.putInt(0x50415931);
+        for (Payment payment : Arrays.asList(john, maria)) {
+            PaymentRecords.putUuid(buffer, payment.getPaymentId());
+            buffer.putInt(payment.getUserId());
+            buffer.putDouble(payment.getAmount());
+            PaymentRecords.putMessage(buffer, PaymentRecords.encode(payment.getMessage()));
+        }
+        Path file = directory.resolve("payments.bin");
+        Files.write(file, buffer.array());
+
+        InMemPaymentRepository target = new InMemPaymentRepository();
+        PaymentImportResult result = new PaymentArchive(target, 64).importBinary(file);
+
+        assertEquals(2, result.getImported());
+        assertEquals("Payment from user John", target.findById(john.getPaymentId()).get().getMessage());
+        assertNull(target.findById(maria.getPaymentId()).get().getMessage());
+        assertThat(target.findAll()).extracting(Payment::getVersion).containsOnly(0L);
+    }
+
+    @Test
+    void shouldRoundTripPaymentsThroughCsv() throws IOException {
+        source.save(new Payment(1, 10.25, "Payment, \"quoted\"\nover two lines"));
+        source.save(new Payment(2, 20.00, null));
+        source.save(new Payment(3, 30.00, ""));
+        Path file = directory.resolve("payments.csv");
+
+        assertEquals(3, new PaymentArchive(source).exportCsv(file));
+        InMemPaymentRepository target = new InMemPaymentRepository();
+        PaymentImportResult result = new PaymentArchive(target).importCsv(file);
+
+        assertEquals(3, result.getImported());
+        Comparator<Payment> byUser = Comparator.comparingInt(Payment::getUserId);
+        List<Payment> imported = target.findAll().stream().sorted(byUser).collect(Collectors.toList());
+        assertThat(imported).containsExactlyElementsOf(source.findAll().stream().sorted(byUser).collect(Collectors.toList()));
+        assertEquals("Payment, \"quoted\"\nover two lines", imported.get(0).getMessage());
+        assertNull(imported.get(1).getMessage());
+        assertEquals("", imported.get(2).getMessage());
+        assertTrue(Files.readAllLines(file, UTF_8).get(0).startsWith("paymentId,"));
+    }
+
+    @Test
+    void shouldKeepThePaymentVersionInCsv() {
+        Payment payment = source.save(new Payment(1, 10.00, "Payment from user John"));
+        source.editMessage(payment.getPaymentId(), "The payment was canceled");
+        source.editMessage(payment.getPaymentId(), "The payment was restored");
+        Path file = directory.resolve("payments.csv");
+        new PaymentArchive(source).exportCsv(file);
+
+        InMemPaymentRepository target = new InMemPaymentRepository();
+        new PaymentArchive(target).importCsv(file);
+
+        Payment imported = target.findById(payment.getPaymentId()).get();
+        assertEquals(2, imported.getVersion());
+        assertEquals("The payment was restored", imported.getMessage());
+    }
+
+    @Test
+    void shouldImportACsvFileWrittenBeforeTheVersionColumn() throws IOException {
+        Payment payment = new Payment(1, 10.00, "hello");
+        Path file = directory.resolve("payments.csv");
+        Files.write(file, Arrays.asList("paymentId,userId,amount,message",
+                payment.getPaymentId() + ",1,10.0,\"hello\""), UTF_8);
+
+        InMemPaymentRepository target = new InMemPaymentRepository();
+        new PaymentArchive(target).importCsv(file);
+
+        Payment imported = target.findById(payment.getPaymentId()).get();
+        assertEquals("hello", imported.getMessage());
+        assertEquals(0, imported.getVersion());
+    }
+
+    @Test
+    void shouldThrowIllegalStateExceptionForAMalformedCsvRecord() throws IOException {
+        Path file = directory.resolve("payments.csv");
+        Files.write(file, Arrays.asList("paymentId,userId,amount,message", "not-a-uuid,1,10.0,hello"), UTF_8);
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> new PaymentArchive(new InMemPaymentRepository()).importCsv(file))
+                .withMessageStartingWith("Malformed record 2");
+    }
+}
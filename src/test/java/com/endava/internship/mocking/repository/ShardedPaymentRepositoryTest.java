@@ -0,0 +1,205 @@
+package com.endava.internship.mocking.repository;
+
+import com.endava.internship.mocking.model.Payment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedPaymentRepositoryTest {
+
+    LoopbackShardTransport transport;
+
+    ShardedPaymentRepository paymentRepository;
+
+    List<Payment> payments;
+
+    @BeforeEach
+    void setUp() {
+        transport = new LoopbackShardTransport();
+        paymentRepository = new ShardedPaymentRepository(transport, Arrays.asList("a", "b", "c"));
+        payments = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            payments.add(new Payment(i % 10, i, "Payment " + i));
+        }
+        paymentRepository.saveAll(payments);
+    }
+
+    @AfterEach
+    void tearDown() {
+        paymentRepository.close();
+    }
+
+    @Test
+    void shouldSpreadPaymentsOverEveryShard() {
+        for (String shardId : Arrays.asList("a", "b", "c")) {
+            assertThat(transport.shard(shardId).get().count()).isBetween(700L, 1_300L);
+        }
+        assertEquals(3_000, paymentRepository.count());
+    }
+
+    @Test
+    void shouldFindEveryPaymentOnItsShard() {
+        for (Payment payment : payments) {
+            assertEquals(payment, paymentRepository.findById(payment.getPaymentId()).get());
+        }
+    }
+
+    @Test
+    void shouldMergeScatteredQueries() {
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrderElementsOf(payments);
+        assertThat(paymentRepository.findByAmountGreaterThan(2_994.00))
+                .extracting(Payment::getAmount)
+                .containsExactly(2_995.00, 2_996.00, 2_997.00, 2_998.00, 2_999.00);
+        assertEquals(300, paymentRepository.countByUser(3));
+        assertEquals(payments.stream().filter(p -> p.getUserId() == 3).mapToDouble(Payment::getAmount).sum(),
+                paymentRepository.sumAmountByUser(3));
+        assertEquals(5, paymentRepository.streamByAmountGreaterThan(2_994.00).count());
+    }
+
+    @Test
+    void shouldPageThroughAllShardsInIdOrder() {
+        List<Payment> pages = new ArrayList<>();
+        List<Payment> page = paymentRepository.findPage(null, 256);
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            page = paymentRepository.findPage(page.get(page.size() - 1).getPaymentId(), 256);
+        }
+
+        assertThat(pages).isSortedAccordingTo((left, right) -> left.getPaymentId().compareTo(right.getPaymentId()));
+        assertThat(pages).containsExactlyInAnyOrderElementsOf(payments);
+    }
+
+    @Test
+    void shouldRejectTheWholeBatchIfOnePaymentIsAlreadySaved() {
+        List<Payment> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new Payment(1, 1.00, "New payment " + i));
+        }
+        batch.add(payments.get(0));
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentRepository.saveAll(batch));
+        assertEquals(3_000, paymentRepository.count());
+    }
+
+    @Test
+    void shouldMoveOnlyThePaymentsTheNewShardTakesOver() {
+        long moved = paymentRepository.addShard("d");
+
+        long onNewShard = transport.shard("d").get().count();
+        assertEquals(onNewShard, moved);
+        assertThat(moved).isBetween(400L, 1_100L);
+        assertEquals(3_000, paymentRepository.count());
+        for (Payment payment : payments) {
+            assertEquals(payment, paymentRepository.findById(payment.getPaymentId()).get());
+        }
+        assertThat(paymentRepository.shardIds()).containsExactly("a", "b", "c", "d");
+    }
+
+    @Test
+    void shouldGoBackToTheOldShardsWhenAMoveFails() {
+        paymentRepository.close();
+        AtomicInteger shardsCreated = new AtomicInteger();
+        transport = new LoopbackShardTransport(() -> shardsCreated.incrementAndGet() <= 3
+                ? new InMemPaymentRepository()
+                : new RefusingSecondBatchRepository());
+        paymentRepository = new ShardedPaymentRepository(transport, Arrays.asList("a", "b", "c"));
+        paymentRepository.saveAll(payments);
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> paymentRepository.addShard("d"))
+                .withMessage("Shard is read-only");
+
+        assertThat(paymentRepository.shardIds()).containsExactly("a", "b", "c");
+        assertEquals(0, transport.shard("d").get().count());
+        assertEquals(3_000, paymentRepository.count());
+        for (Payment payment : payments) {
+            assertEquals(payment, paymentRepository.findById(payment.getPaymentId()).get());
+        }
+    }
+
+    @Test
+    void shouldSplitTheStreamOverTheShardsAndWithinEachOfThem() {
+        Spliterator<Payment> suffix = paymentRepository.stream().spliterator();
+        Spliterator<Payment> firstShard = suffix.trySplit();
+        Spliterator<Payment> secondShard = suffix.trySplit();
+        Spliterator<Payment> partOfLastShard = suffix.trySplit();
+
+        assertNotNull(firstShard);
+        assertNotNull(secondShard);
+        assertNotNull(partOfLastShard);
+        assertThat(suffix.estimateSize()).isLessThan(1_300L);
+        List<Payment> scanned = new ArrayList<>();
+        firstShard.forEachRemaining(scanned::add);
+        secondShard.forEachRemaining(scanned::add);
+        partOfLastShard.forEachRemaining(scanned::add);
+        suffix.forEachRemaining(scanned::add);
+        assertThat(scanned).containsExactlyInAnyOrderElementsOf(payments);
+        assertEquals(5, paymentRepository.streamByAmountGreaterThan(2_994.00).parallel().count());
+    }
+
+    @Test
+    void shouldEditAndDeleteOnTheOwningShard() {
+        Payment payment = payments.get(42);
+
+        paymentRepository.editMessage(payment.getPaymentId(), "Edited");
+        assertEquals("Edited", paymentRepository.findById(payment.getPaymentId()).get().getMessage());
+        paymentRepository.delete(payment.getPaymentId());
+
+        assertFalse(paymentRepository.findById(payment.getPaymentId()).isPresent());
+        assertThatExceptionOfType(NoSuchElementException.class)
+                .isThrownBy(() -> paymentRepository.editMessage(payment.getPaymentId(), "Edited again"));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenAddingAKnownShard() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentRepository.addShard("a"))
+                .withMessage("Shard a already added");
+    }
+
+    @Test
+    void shouldKeepServingWritesWhileRebalancing() throws InterruptedException {
+        List<Payment> written = new ArrayList<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                Payment payment = new Payment(99, i, "Concurrent " + i);
+                paymentRepository.save(payment);
+                written.add(payment);
+            }
+        });
+        writer.start();
+        paymentRepository.addShard("d");
+        writer.join();
+
+        assertEquals(5_000, paymentRepository.count());
+        assertThat(paymentRepository.findByUserId(99).stream().map(Payment::getPaymentId).collect(Collectors.toList()))
+                .containsExactlyInAnyOrderElementsOf(written.stream().map(Payment::getPaymentId).collect(Collectors.toList()));
+    }
+
+    // takes the first batch it is sent and refuses the next, so a rebalance fails halfway
+    private static class RefusingSecondBatchRepository extends InMemPaymentRepository {
+
+        private final AtomicInteger batches = new AtomicInteger();
+
+        @Override
+        public List<Payment> saveAll(List<Payment> payments) {
+            if (batches.incrementAndGet() == 2) {
+                throw new IllegalStateException("Shard is read-only");
+            }
+            return super.saveAll(payments);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.endava.internship.mocking.repository;
+
+import com.endava.internship.mocking.model.Payment;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedPaymentListTest {
+
+    @Test
+    void shouldMatchASortedSetUnderRandomInsertsAndRemoves() {
+        Random random = new Random(42);
+        List<Payment> payments = new ArrayList<>();
+        TreeSet<Payment> expected = new TreeSet<>(SortedPaymentList.ORDER);
+        SortedPaymentList list = SortedPaymentList.empty();
+
+        for (int i = 0; i < 5_000; i++) {
+            if (payments.isEmpty() || random.nextInt(3) > 0) {
+                Payment payment = new Payment(i, random.nextInt(100), "Payment " + i);
+                payments.add(payment);
+                expected.add(payment);
+                list = list.with(payment);
+            } else {
+                Payment payment = payments.remove(random.nextInt(payments.size()));
+                expected.remove(payment);
+                list = list.without(payment);
+            }
+        }
+
+        assertThat(list).containsExactlyElementsOf(expected);
+        assertEquals(expected.size(), list.size());
+        assertEquals(expected.first(), list.get(0));
+        assertEquals(expected.last(), list.get(list.size() - 1));
+    }
+
+    @Test
+    void shouldLeaveEarlierVersionsUntouched() {
+        Payment small = new Payment(1, 10.00, "Payment from user John");
+        Payment large = new Payment(2, 20.00, "Payment from user Maria");
+        SortedPaymentList first = SortedPaymentList.empty().with(large);
+
+        SortedPaymentList second = first.with(small);
+        SortedPaymentList third = second.without(large).with(small.withMessage("Rent"));
+
+        assertThat(first).containsExactly(large);
+        assertThat(second).containsExactly(small, large);
+        assertThat(third).hasSize(1);
+        assertEquals("Rent", third.find(small).getMessage());
+        assertNull(third.find(large));
+        assertSame(third, third.without(large));
+        assertThrows(IndexOutOfBoundsException.class, () -> third.get(1));
+    }
+}
@@ -0,0 +1,266 @@
+package com.endava.internship.mocking.repository;
+
+import com.endava.internship.mocking.model.Payment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindPaymentRepositoryTest {
+
+    InMemPaymentRepository delegate;
+
+    WriteBehindPaymentRepository paymentRepository;
+
+    Payment payment;
+
+    Payment payment1;
+
+    Payment payment2;
+
+    @BeforeEach
+    void setUp() {
+        delegate = new InMemPaymentRepository();
+        // the interval is long enough that nothing is flushed unless a test asks for it
+        paymentRepository = new WriteBehindPaymentRepository(delegate, 16, 16, Duration.ofHours(1));
+        payment = new Payment(33, 555.00, "Insert amount");
+        payment1 = new Payment(44, 666.00, "Insert amount");
+        payment2 = new Payment(44, 777.00, "Insert amount");
+        delegate.save(payment);
+    }
+
+    @AfterEach
+    void tearDown() {
+        paymentRepository.close();
+    }
+
+    @Test
+    void shouldSeeBufferedPaymentsBeforeTheyAreFlushed() {
+        paymentRepository.saveAll(Arrays.asList(payment1, payment2));
+
+        assertFalse(delegate.findById(payment1.getPaymentId()).isPresent());
+        assertEquals(2, paymentRepository.pendingWrites());
+        assertEquals(payment1, paymentRepository.findById(payment1.getPaymentId()).get());
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1, payment2);
+        assertThat(paymentRepository.findByAmountGreaterThan(500.00)).containsExactly(payment, payment1, payment2);
+        assertThat(paymentRepository.findByUserId(44)).containsExactlyInAnyOrder(payment1, payment2);
+        assertEquals(2, paymentRepository.countByUser(44));
+        assertEquals(1_443.00, paymentRepository.sumAmountByUser(44));
+        assertEquals(3, paymentRepository.count());
+    }
+
+    @Test
+    void shouldWriteBufferedPaymentsToTheDelegateOnFlush() {
+        paymentRepository.save(payment1);
+
+        paymentRepository.flush();
+
+        assertEquals(payment1, delegate.findById(payment1.getPaymentId()).get());
+        assertEquals(0, paymentRepository.pendingWrites());
+        assertThat(paymentRepository.findAll()).containsExactlyInAnyOrder(payment, payment1);
+    }
+
+    @Test
+    void shouldFlushOnceABatchIsFull() throws InterruptedException {
+        paymentRepository.close();
+        paymentRepository = new WriteBehindPaymentRepository(delegate, 16, 2, Duration.ofHours(1));
+
+        paymentRepository.saveAll(Arrays.asList(payment1, payment2));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (delegate.count() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(3, delegate.count());
+    }
+
+    @Test
+    void shouldDrainTheBufferOnClose() {
+        paymentRepository.save(payment1);
+        paymentRepository.save(payment2);
+
+        paymentRepository.close();
+
+        assertThat(delegate.findAll()).containsExactlyInAnyOrder(payment, payment1, payment2);
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> paymentRepository.save(new Payment(55, 888.00, "Insert amount")))
+                .withMessage("Write-behind repository is closed");
+    }
+
+    @Test
+    void shouldRejectAPaymentThatIsBufferedOrAlreadyStored() {
+        paymentRepository.save(payment1);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentRepository.save(payment1))
+                .withMessage("Payment with id " + payment1.getPaymentId() + " already saved");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentRepository.saveAll(Arrays.asList(payment2, Payment.copyOf(payment))))
+                .withMessage("Payment with id " + payment.getPaymentId() + " already saved");
+        assertFalse(paymentRepository.findById(payment2.getPaymentId()).isPresent());
+    }
+
+    @Test
+    void shouldKeepAndRetryPaymentsTheDelegateRefuses() {
+        FailingRepository failingDelegate = new FailingRepository();
+        paymentRepository.close();
+        paymentRepository = new WriteBehindPaymentRepository(failingDelegate, 16, 16, Duration.ofHours(1));
+        paymentRepository.save(payment1);
+        failingDelegate.failing = true;
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(paymentRepository::flush)
+                .withMessage("1 payments could not be written to the delegate")
+                .withCauseInstanceOf(UncheckedIOException.class);
+        assertEquals(payment1, paymentRepository.findById(payment1.getPaymentId()).get());
+        assertEquals(1, paymentRepository.pendingWrites());
+
+        failingDelegate.failing = false;
+        paymentRepository.flush();
+
+        assertEquals(payment1, failingDelegate.findById(payment1.getPaymentId()).get());
+        assertEquals(0, paymentRepository.pendingWrites());
+        assertEquals(1, paymentRepository.failedWrites());
+    }
+
+    @Test
+    void shouldRejectSavesWhileTheDelegateKeepsFailing() {
+        FailingRepository failingDelegate = new FailingRepository();
+        paymentRepository.close();
+        paymentRepository = new WriteBehindPaymentRepository(failingDelegate, 16, 16, Duration.ofHours(1));
+        paymentRepository.save(payment1);
+        failingDelegate.failing = true;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            assertThrows(IllegalStateException.class, paymentRepository::flush);
+        }
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> paymentRepository.save(payment2))
+                .withMessage("Write-behind repository cannot write to its delegate")
+                .withCauseInstanceOf(UncheckedIOException.class);
+        assertThrows(IllegalStateException.class, () -> paymentRepository.delete(payment1.getPaymentId()));
+
+        failingDelegate.failing = false;
+        paymentRepository.flush();
+        paymentRepository.save(payment2);
+        paymentRepository.flush();
+
+        assertThat(failingDelegate.findAll()).containsExactlyInAnyOrder(payment1, payment2);
+    }
+
+    @Test
+    void shouldNotRetryAPaymentTheDelegateStoredBeforeFailing() {
+        FailingRepository failingDelegate = new FailingRepository();
+        paymentRepository.close();
+        paymentRepository = new WriteBehindPaymentRepository(failingDelegate, 16, 16, Duration.ofHours(1));
+        failingDelegate.failAfterStoring = true;
+
+        paymentRepository.save(payment1);
+        paymentRepository.flush();
+
+        assertEquals(payment1, failingDelegate.findById(payment1.getPaymentId()).get());
+        assertEquals(0, paymentRepository.pendingWrites());
+        assertEquals(0, paymentRepository.failedWrites());
+    }
+
+    @Test
+    void shouldMergeBufferedPaymentsIntoTheAmountOrderOfTheDelegate() {
+        Payment stored = delegate.save(new Payment(55, 650.00, "Insert amount"));
+        Payment cheaper = new Payment(55, 500.00, "Insert amount");
+        paymentRepository.saveAll(Arrays.asList(payment2, cheaper, payment1));
+
+        assertThat(paymentRepository.findByAmountGreaterThan(400.00))
+                .containsExactly(cheaper, payment, stored, payment1, payment2);
+        assertThat(paymentRepository.streamByAmountGreaterThan(600.00).limit(2))
+                .containsExactly(stored, payment1);
+    }
+
+    @Test
+    void shouldFlushABufferedPaymentBeforeEditingOrDeletingIt() {
+        paymentRepository.save(payment1);
+        paymentRepository.save(payment2);
+
+        Payment edited = paymentRepository.editMessage(payment1.getPaymentId(), 0, "The payment was canceled");
+
+        assertEquals(1, edited.getVersion());
+        assertEquals("The payment was canceled", delegate.findById(payment1.getPaymentId()).get().getMessage());
+        assertEquals(payment2, paymentRepository.delete(payment2.getPaymentId()));
+        assertFalse(paymentRepository.findById(payment2.getPaymentId()).isPresent());
+    }
+
+    @Test
+    void shouldBlockSavesWhileTheBufferIsFull() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        PaymentRepository slowDelegate = new InMemPaymentRepository() {
+            @Override
+            public List<Payment> saveAll(List<Payment> payments) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.saveAll(payments);
+            }
+        };
+        paymentRepository.close();
+        paymentRepository = new WriteBehindPaymentRepository(slowDelegate, 2, 2, Duration.ofMillis(1));
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            payments.add(new Payment(i, 100.00 + i, "Payment " + i));
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> saves = executor.submit(() -> payments.forEach(paymentRepository::save));
+        assertThrows(TimeoutException.class, () -> saves.get(200, TimeUnit.MILLISECONDS));
+        gate.countDown();
+        saves.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        paymentRepository.flush();
+
+        assertThat(slowDelegate.findAll()).containsExactlyInAnyOrderElementsOf(payments);
+        assertThat(paymentRepository.backpressureWaits()).isPositive();
+    }
+
+    static class FailingRepository extends InMemPaymentRepository {
+
+        volatile boolean failing;
+
+        volatile boolean failAfterStoring;
+
+        @Override
+        public Payment save(Payment payment) {
+            if (failing) {
+                throw new UncheckedIOException(new IOException("Disk full"));
+            }
+            return super.save(payment);
+        }
+
+        @Override
+        public List<Payment> saveAll(List<Payment> payments) {
+            if (failing) {
+                throw new UncheckedIOException(new IOException("Disk full"));
+            }
+            super.saveAll(payments);
+            if (failAfterStoring) {
+                throw new UncheckedIOException(new IOException("Connection reset"));
+            }
+            return payments;
+        }
+    }
+}
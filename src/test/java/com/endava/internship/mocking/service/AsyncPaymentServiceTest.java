@@ -0,0 +1,102 @@
+package com.endava.internship.mocking.service;
+
+import com.endava.internship.mocking.model.Payment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncPaymentServiceTest {
+
+    @Mock
+    PaymentService paymentService;
+
+    ExecutorService executor;
+
+    AsyncPaymentService asyncPaymentService;
+
+    Payment payment;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        asyncPaymentService = new AsyncPaymentService(paymentService, executor, 1, Duration.ZERO);
+        payment = new Payment(11, 55.00, "Payed");
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncPaymentService.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldCreateThePaymentAsynchronously() throws Exception {
+        when(paymentService.createPayment(11, 55.00)).thenReturn(payment);
+
+        assertEquals(payment, asyncPaymentService.createPayment(11, 55.00).get(5, TimeUnit.SECONDS));
+        assertEquals(1, asyncPaymentService.availablePermits());
+    }
+
+    @Test
+    void shouldCompleteExceptionallyWhenTheServiceFails() {
+        UUID paymentId = UUID.randomUUID();
+        when(paymentService.editPaymentMessage(paymentId, "NEW"))
+                .thenThrow(new NoSuchElementException("Payment with id " + paymentId + " not found"));
+
+        CompletableFuture<Payment> result = asyncPaymentService.editPaymentMessage(paymentId, "NEW");
+
+        assertThatExceptionOfType(ExecutionException.class)
+                .isThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                .withCauseInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void shouldRejectRequestsBeyondTheConcurrencyLimit() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(paymentService.createPayment(11, 55.00)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return payment;
+        });
+
+        CompletableFuture<Payment> first = asyncPaymentService.createPayment(11, 55.00);
+        started.await();
+        CompletableFuture<Payment> second = asyncPaymentService.createPayment(11, 55.00);
+        release.countDown();
+
+        assertThatExceptionOfType(ExecutionException.class)
+                .isThrownBy(second::get)
+                .withCauseInstanceOf(RejectedExecutionException.class);
+        assertEquals(payment, first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldCreateATaskExecutorForThisRuntime() throws Exception {
+        ExecutorService taskExecutor = AsyncPaymentService.newTaskExecutor(2);
+        try {
+            assertEquals("done", taskExecutor.submit(() -> "done").get(5, TimeUnit.SECONDS));
+        } finally {
+            taskExecutor.shutdown();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.endava.internship.mocking.service;
 
 import com.endava.internship.mocking.model.Status;
 import com.endava.internship.mocking.model.User;
+import com.endava.internship.mocking.model.ValidationResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -34,13 +35,21 @@ class BasicValidationServiceTest {
     }
 
     @ParameterizedTest
-    @ValueSource(doubles = {0.00, -5.00})
+    @ValueSource(doubles = {0.00, -5.00, Double.NaN})
     void shouldThrowIllegalArgumentExceptionIfTheParameterLessOrEqualsToZero(Double amount) {
         assertThatExceptionOfType(IllegalArgumentException.class)
                 .isThrownBy(() -> validationService.validateAmount(amount))
                 .withMessage("Amount must be greater than 0");
     }
 
+    @ParameterizedTest
+    @ValueSource(doubles = {0.00, -5.00, Double.NaN})
+    void shouldThrowIllegalArgumentExceptionIfThePrimitiveAmountLessOrEqualsToZero(double amount) {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> validationService.validateAmount(amount))
+                .withMessage("Amount must be greater than 0");
+    }
+
     @Test
     void shouldAcceptPaymentId() {
         assertDoesNotThrow(() -> validationService.validatePaymentId(UUID.randomUUID()));
@@ -90,4 +99,23 @@ class BasicValidationServiceTest {
                 .isThrownBy(() -> validationService.validateMessage(null))
                 .withMessage("Payment message must not be null");
     }
+
+    @Test
+    void shouldReturnTheSameValidResultForEveryPassingCheck() {
+        assertSame(ValidationResult.VALID, validationService.checkAmount(55.00));
+        assertSame(ValidationResult.VALID, validationService.checkUserId(11));
+        assertSame(ValidationResult.VALID, validationService.checkPaymentId(UUID.randomUUID()));
+        assertSame(ValidationResult.VALID, validationService.checkUser(new User(11, "Ron", Status.ACTIVE)));
+        assertSame(ValidationResult.VALID, validationService.checkMessage("Payment is complete"));
+    }
+
+    @Test
+    void shouldReturnAnErrorCodeInsteadOfThrowing() {
+        assertEquals(ValidationResult.AMOUNT_NULL, validationService.checkAmount((Double) null));
+        assertEquals(ValidationResult.AMOUNT_NOT_POSITIVE, validationService.checkAmount(-5.00));
+        assertEquals(ValidationResult.USER_ID_NULL, validationService.checkUserId((Integer) null));
+        assertEquals(ValidationResult.PAYMENT_ID_NULL, validationService.checkPaymentId(null));
+        assertEquals(ValidationResult.USER_NOT_ACTIVE, validationService.checkUser(new User(11, "Ben", Status.INACTIVE)));
+        assertEquals(ValidationResult.MESSAGE_NULL, validationService.checkMessage(null));
+    }
 }
@@ -6,8 +6,13 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import com.endava.internship.mocking.model.Payment;
+import com.endava.internship.mocking.model.PaymentRequest;
+import com.endava.internship.mocking.model.PaymentResult;
 import com.endava.internship.mocking.model.Status;
 import com.endava.internship.mocking.model.User;
+import com.endava.internship.mocking.model.ValidationResult;
+import com.endava.internship.mocking.repository.InMemPaymentRepository;
+import com.endava.internship.mocking.repository.ObservablePaymentRepository;
 import com.endava.internship.mocking.repository.PaymentRepository;
 import com.endava.internship.mocking.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,7 +24,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.mockito.Mockito.when;
 
@@ -48,65 +59,132 @@ class PaymentServiceTest {
 
     @Test
     void shouldThrowIllegalArgumentExceptionWhenuserIdIsNotValid() {
-        doThrow(new IllegalArgumentException("The user ID is not valid"))
-                .when(validationService).validateUserId(user.getId());
+        when(validationService.checkUserId((Integer) 11)).thenReturn(ValidationResult.USER_ID_NULL);
 
         assertThatExceptionOfType(IllegalArgumentException.class)
                 .isThrownBy(() -> paymentService.createPayment(11, 333.00))
-                .withMessage("The user ID is not valid");
+                .withMessage("User id must not be null");
 
-        verify(validationService).validateUserId(11);
+        verify(validationService).checkUserId((Integer) 11);
+        verify(validationService, never()).checkAmount(any(Double.class));
     }
 
     @Test
     void shouldThrowIllegalArgumentExceptionWhenAmountIsNotValid() {
-        doNothing().when(validationService).validateUserId(user.getId());
-        doThrow(new IllegalArgumentException("The amount can not be negative"))
-                .when(validationService).validateAmount(-50.00);
+        when(validationService.checkUserId((Integer) 11)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount(Double.valueOf(-50.00))).thenReturn(ValidationResult.AMOUNT_NOT_POSITIVE);
 
         assertThatExceptionOfType(IllegalArgumentException.class)
                 .isThrownBy(() -> paymentService.createPayment(11, -50.00))
-                .withMessage("The amount can not be negative");
+                .withMessage("Amount must be greater than 0");
 
-        verify(validationService).validateUserId(11);
-        verify(validationService).validateAmount(-50.000);
+        verify(validationService).checkUserId((Integer) 11);
+        verify(validationService).checkAmount(Double.valueOf(-50.000));
     }
 
     @Test
     void shouldThrowNoSuchElementExceptionWhenUserIsNotFoundInUserRepository() {
-        doNothing().when(validationService).validateUserId(22);
-        doNothing().when(validationService).validateAmount(333.00);
+        when(validationService.checkUserId((Integer) 22)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount((Double) 333.00)).thenReturn(ValidationResult.VALID);
 
         assertThatExceptionOfType(NoSuchElementException.class)
                 .isThrownBy(() -> paymentService.createPayment(22, 333.00))
                 .withMessage("User with id 22 not found");
 
-        verify(validationService).validateUserId(22);
-        verify(validationService).validateAmount(333.000);
+        verify(validationService).checkUserId((Integer) 22);
+        verify(validationService).checkAmount((Double) 333.000);
     }
 
     @Test
-    void shouldThrowNoSuchElementExceptionWhenUserIsNotActive() {
-        doNothing().when(validationService).validateUserId(22);
-        doNothing().when(validationService).validateAmount(333.00);
+    void shouldThrowIllegalArgumentExceptionWhenUserIsNotActive() {
+        when(validationService.checkUserId((Integer) 22)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount((Double) 333.00)).thenReturn(ValidationResult.VALID);
         when(userRepository.findById(22)).thenReturn(Optional.of(user));
-        doThrow(new NoSuchElementException("This user is not active"))
-                .when(validationService).validateUser(user);
+        when(validationService.checkUser(user)).thenReturn(ValidationResult.USER_NOT_ACTIVE);
 
-        assertThatExceptionOfType(NoSuchElementException.class)
+        assertThatExceptionOfType(IllegalArgumentException.class)
                 .isThrownBy(() -> paymentService.createPayment(22, 333.00))
-                .withMessage("This user is not active");
+                .withMessage("User with id 22 not in ACTIVE status");
 
-        verify(validationService).validateUserId(22);
-        verify(validationService).validateAmount(333.000);
+        verify(validationService).checkUserId((Integer) 22);
+        verify(validationService).checkAmount((Double) 333.000);
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenThePaymentBreaksARule() {
+        when(validationService.checkUserId((Integer) 11)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount((Double) 333.00)).thenReturn(ValidationResult.VALID);
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+        when(validationService.checkUser(user)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkPayment(user, 333.00)).thenReturn(ValidationResult.USER_LIMIT_EXCEEDED);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentService.createPayment(11, 333.00))
+                .withMessage("Amount exceeds the limit of user with id 11");
+
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldThrowIllegalStateExceptionWhenTheUserExceedsTheRateLimit() {
+        paymentService = new PaymentService(userRepository, paymentRepository, validationService,
+                new VelocityLimiter(1, 1_000.00, Duration.ofMinutes(1)));
+        when(validationService.checkUserId((Integer) 11)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount((Double) 333.00)).thenReturn(ValidationResult.VALID);
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+        when(validationService.checkUser(user)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkPayment(user, 333.00)).thenReturn(ValidationResult.VALID);
+        when(paymentRepository.save(any())).thenReturn(payment);
+
+        paymentService.createPayment(11, 333.00);
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> paymentService.createPayment(11, 333.00))
+                .withMessage("User with id 11 exceeded the payment rate limit");
+        verify(paymentRepository, times(1)).save(any());
+    }
+
+    @Test
+    void shouldNotChargeTheRateLimitForAPaymentThatWasNotSaved() {
+        paymentService = new PaymentService(userRepository, paymentRepository, validationService,
+                new VelocityLimiter(1, 1_000.00, Duration.ofMinutes(1)));
+        when(validationService.checkUserId((Integer) 11)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount((Double) 333.00)).thenReturn(ValidationResult.VALID);
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+        when(validationService.checkUser(user)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkPayment(user, 333.00)).thenReturn(ValidationResult.VALID);
+        IllegalStateException storeDown = new IllegalStateException("Store is down");
+        when(paymentRepository.save(any())).thenThrow(storeDown).thenReturn(payment);
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> paymentService.createPayment(11, 333.00))
+                .isSameAs(storeDown);
+        assertEquals(payment, paymentService.createPayment(11, 333.00));
+    }
+
+    @Test
+    void shouldReturnARejectionInsteadOfThrowingWhenAskedForAResult() {
+        when(validationService.checkUserId((Integer) 11)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount((Double) 333.00)).thenReturn(ValidationResult.VALID);
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+        when(validationService.checkUser(user)).thenReturn(ValidationResult.USER_NOT_ACTIVE);
+
+        PaymentResult result = paymentService.tryCreatePayment(11, 333.00);
+
+        assertFalse(result.isSuccessful());
+        assertEquals(ValidationResult.USER_NOT_ACTIVE, result.getRejection());
+        assertEquals(new PaymentRequest(11, 333.00), result.getRequest());
+        verify(paymentRepository, never()).save(any());
     }
 
     @Test
     void shouldSuccessfulCreatePayment() {
-        doNothing().when(validationService).validateUserId(11);
-        doNothing().when(validationService).validateAmount(333.00);
+        when(validationService.checkUserId((Integer) 11)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount((Double) 333.00)).thenReturn(ValidationResult.VALID);
         when(userRepository.findById(11)).thenReturn(Optional.of(user));
-        doNothing().when(validationService).validateUser(user);
+        when(validationService.checkUser(user)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkPayment(user, 333.00)).thenReturn(ValidationResult.VALID);
         when(paymentRepository.save(paymentArgumentCaptor.capture())).thenReturn(payment);
 
         paymentService.createPayment(11, 333.00);
@@ -115,75 +193,307 @@ class PaymentServiceTest {
         assertEquals(333.00, paymentArgumentCaptor.getValue().getAmount());
         assertEquals("Payment from user Ben", paymentArgumentCaptor.getValue().getMessage());
 
-        verify(validationService).validateUserId(11);
-        verify(validationService).validateAmount(333.000);
-        verify(validationService).validateUser(user);
+        verify(validationService).checkUserId((Integer) 11);
+        verify(validationService).checkAmount((Double) 333.000);
+        verify(validationService).checkUser(user);
         verify(paymentRepository).save(paymentArgumentCaptor.capture());
     }
 
+    @Test
+    void shouldValidateBoxedArgumentsWhenCreatingAPaymentFromBoxedValues() {
+        Integer userId = 11;
+        Double amount = 333.00;
+        when(validationService.checkUserId(userId)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount(amount)).thenReturn(ValidationResult.VALID);
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+        when(validationService.checkUser(user)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkPayment(user, 333.00)).thenReturn(ValidationResult.VALID);
+        when(paymentRepository.save(paymentArgumentCaptor.capture())).thenReturn(payment);
+
+        paymentService.createPayment(userId, amount);
+
+        assertEquals(333.00, paymentArgumentCaptor.getValue().getAmount());
+        verify(validationService, never()).checkAmount(333.00);
+    }
+
+    @Test
+    void shouldCreateAPaymentFromABoxedUserIdAndAPrimitiveAmount() {
+        when(validationService.checkUserId(user.getId())).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount((Double) 333.00)).thenReturn(ValidationResult.VALID);
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+        when(validationService.checkUser(user)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkPayment(user, 333.00)).thenReturn(ValidationResult.VALID);
+        when(paymentRepository.save(paymentArgumentCaptor.capture())).thenReturn(payment);
+
+        paymentService.createPayment(user.getId(), 333.00);
+
+        assertEquals(11, paymentArgumentCaptor.getValue().getUserId());
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenTheBoxedAmountIsNull() {
+        Integer userId = 11;
+        when(validationService.checkUserId(userId)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount((Double) null)).thenReturn(ValidationResult.AMOUNT_NULL);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentService.createPayment(userId, null))
+                .withMessage("Amount must not be null");
+    }
+
     @Test
     void shouldEditPaymentMessage() {
-        Payment expectedPayment = Payment.copyOf(payment);
-        expectedPayment.setMessage("NEW");
+        Payment expectedPayment = payment.withMessage("NEW");
 
-        doNothing().when(validationService).validatePaymentId(expectedPayment.getPaymentId());
-        doNothing().when(validationService).validateMessage("NEW");
+        when(validationService.checkPaymentId(expectedPayment.getPaymentId())).thenReturn(ValidationResult.VALID);
+        when(validationService.checkMessage("NEW")).thenReturn(ValidationResult.VALID);
         when(paymentRepository.editMessage(payment.getPaymentId(), "NEW"))
                 .thenReturn(expectedPayment);
 
         Payment actual = paymentService.editPaymentMessage(payment.getPaymentId(), "NEW");
         assertThat(expectedPayment).isEqualTo(actual);
 
-        verify(validationService).validatePaymentId(payment.getPaymentId());
-        verify(validationService).validateMessage("NEW");
+        verify(validationService).checkPaymentId(payment.getPaymentId());
+        verify(validationService).checkMessage("NEW");
         verify(paymentRepository).editMessage(payment.getPaymentId(), "NEW");
     }
 
+    @Test
+    void shouldPassTheExpectedVersionToTheRepository() {
+        when(validationService.checkPaymentId(payment.getPaymentId())).thenReturn(ValidationResult.VALID);
+        when(validationService.checkMessage("NEW")).thenReturn(ValidationResult.VALID);
+        when(paymentRepository.editMessage(payment.getPaymentId(), 0, "NEW"))
+                .thenThrow(new ConcurrentModificationException("Payment with id " + payment.getPaymentId()
+                        + " is no longer at version 0"));
+
+        assertThatExceptionOfType(ConcurrentModificationException.class)
+                .isThrownBy(() -> paymentService.editPaymentMessage(payment.getPaymentId(), 0, "NEW"))
+                .withMessage("Payment with id " + payment.getPaymentId() + " is no longer at version 0");
+
+        verify(paymentRepository, never()).editMessage(any(), any());
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenTheNewMessageIsNotValid() {
+        when(validationService.checkPaymentId(payment.getPaymentId())).thenReturn(ValidationResult.VALID);
+        when(validationService.checkMessage(null)).thenReturn(ValidationResult.MESSAGE_NULL);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> paymentService.editPaymentMessage(payment.getPaymentId(), null))
+                .withMessage("Payment message must not be null");
+
+        verify(paymentRepository, never()).editMessage(any(), any());
+    }
+
     @Test
     void shouldGetAListOfWithExceedingAmount() {
-        List<Payment> paymentList = new ArrayList<>();
         List<Payment> expectedPaymentList = new ArrayList<>();
 
-        Payment payment = new Payment(11, 56.00, "Payed");
-        Payment payment1 = new Payment(11, 57.00, "Payed");
         Payment payment2 = new Payment(11, 58.00, "Payed");
         Payment payment3 = new Payment(11, 59.00, "Payed");
         Payment payment4 = new Payment(11, 60.00, "Payed");
 
-        paymentList.add(payment);
-        paymentList.add(payment1);
-        paymentList.add(payment2);
-        paymentList.add(payment3);
-        paymentList.add(payment4);
-
         expectedPaymentList.add(payment2);
         expectedPaymentList.add(payment3);
         expectedPaymentList.add(payment4);
 
-        when(paymentRepository.findAll()).thenReturn(paymentList);
+        when(paymentRepository.findByAmountGreaterThan(57.00)).thenReturn(expectedPaymentList);
 
         assertEquals(expectedPaymentList, paymentService.getAllByAmountExceeding(57.00));
     }
 
+    @Test
+    void shouldStreamThePaymentsWithExceedingAmount() {
+        Payment payment2 = new Payment(11, 58.00, "Payed");
+        when(paymentRepository.streamByAmountGreaterThan(57.00)).thenReturn(Stream.of(payment2));
+
+        assertThat(paymentService.streamAllByAmountExceeding(57.00)).containsExactly(payment2);
+    }
+
+    @Test
+    void shouldScanThePaymentsWithExceedingAmountInParallel() {
+        AtomicInteger splits = new AtomicInteger();
+        PaymentRepository storedPayments = new InMemPaymentRepository() {
+            @Override
+            public Stream<Payment> streamByAmountGreaterThan(double amount) {
+                return StreamSupport.stream(new CountingSpliterator(super.streamByAmountGreaterThan(amount).spliterator(),
+                        splits), false);
+            }
+        };
+        for (int i = 0; i < 20_000; i++) {
+            storedPayments.save(new Payment(11, 100.00 + i, "Payed"));
+            storedPayments.save(new Payment(11, 1.00 + i / 100_000.0, "Payed"));
+        }
+        PaymentService service = new PaymentService(userRepository, storedPayments, validationService);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        List<Payment> exceeding;
+        try {
+            exceeding = service.getAllByAmountExceeding(57.00, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(storedPayments.findByAmountGreaterThan(57.00), exceeding);
+        assertThat(exceeding).hasSize(20_000);
+        assertThat(splits.get()).isGreaterThan(1);
+    }
+
+    private static class CountingSpliterator implements Spliterator<Payment> {
+
+        private final Spliterator<Payment> delegate;
+
+        private final AtomicInteger splits;
+
+        CountingSpliterator(Spliterator<Payment> delegate, AtomicInteger splits) {
+            this.delegate = delegate;
+            this.splits = splits;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Payment> action) {
+            return delegate.tryAdvance(action);
+        }
+
+        @Override
+        public Spliterator<Payment> trySplit() {
+            Spliterator<Payment> prefix = delegate.trySplit();
+            if (prefix == null) {
+                return null;
+            }
+            splits.incrementAndGet();
+            return new CountingSpliterator(prefix, splits);
+        }
+
+        @Override
+        public long estimateSize() {
+            return delegate.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return delegate.characteristics();
+        }
+    }
+
     @Test
     void shouldReturnAnEmptyListWhenNoPaymentWhichExceed() {
-        List<Payment> paymentList = new ArrayList<>();
         List<Payment> expectedPaymentList = new ArrayList<>();
 
-        Payment payment = new Payment(11, 56.00, "Payed");
-        Payment payment1 = new Payment(11, 57.00, "Payed");
-        Payment payment2 = new Payment(11, 58.00, "Payed");
-        Payment payment3 = new Payment(11, 59.00, "Payed");
-        Payment payment4 = new Payment(11, 60.00, "Payed");
+        when(paymentRepository.findByAmountGreaterThan(100.00)).thenReturn(new ArrayList<>());
 
-        paymentList.add(payment);
-        paymentList.add(payment1);
-        paymentList.add(payment2);
-        paymentList.add(payment3);
-        paymentList.add(payment4);
+        assertEquals(expectedPaymentList, paymentService.getAllByAmountExceeding(100.00));
+    }
 
-        when(paymentRepository.findAll()).thenReturn(paymentList);
+    @Test
+    void shouldCreatePaymentsInBatchAndReportEachRow() {
+        User inactiveUser = new User(22, "Ann", Status.INACTIVE);
+        when(validationService.checkUserId(Integer.valueOf(11))).thenReturn(ValidationResult.VALID);
+        when(validationService.checkUserId(Integer.valueOf(22))).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount(Double.valueOf(100.00))).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount(Double.valueOf(200.00))).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount(Double.valueOf(-1.00))).thenReturn(ValidationResult.AMOUNT_NOT_POSITIVE);
+        when(validationService.checkAmount(Double.valueOf(300.00))).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount(Double.valueOf(400.00))).thenReturn(ValidationResult.VALID);
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+        when(userRepository.findById(22)).thenReturn(Optional.of(inactiveUser));
+        when(validationService.checkUser(user)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkUser(inactiveUser)).thenReturn(ValidationResult.USER_NOT_ACTIVE);
+        when(validationService.checkPayment(user, 100.00)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkPayment(user, 300.00)).thenReturn(ValidationResult.VALID);
+        when(paymentRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<PaymentResult> results = paymentService.createPayments(Arrays.asList(
+                new PaymentRequest(11, 100.00),
+                new PaymentRequest(22, 200.00),
+                new PaymentRequest(11, -1.00),
+                new PaymentRequest(11, 300.00),
+                new PaymentRequest(22, 400.00)));
+
+        assertThat(results).extracting(PaymentResult::isSuccessful).containsExactly(true, false, false, true, false);
+        assertEquals(100.00, results.get(0).getPayment().getAmount());
+        assertEquals("Payment from user Ben", results.get(3).getPayment().getMessage());
+        assertEquals(ValidationResult.USER_NOT_ACTIVE, results.get(1).getRejection());
+        assertEquals(ValidationResult.AMOUNT_NOT_POSITIVE, results.get(2).getRejection());
+        assertThat(results.get(4).getError())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("User with id 22 not in ACTIVE status");
+
+        verify(userRepository, times(1)).findById(11);
+        verify(userRepository, times(1)).findById(22);
+        verify(validationService, times(1)).checkUser(user);
+        verify(validationService, never()).checkPayment(eq(inactiveUser), anyDouble());
+        verify(paymentRepository).saveAll(anyList());
+        verify(paymentRepository, never()).save(any());
+    }
 
-        assertEquals(expectedPaymentList, paymentService.getAllByAmountExceeding(100.00));
+    @Test
+    void shouldRejectRowsOfUnknownUsersWithoutFailingTheBatch() {
+        when(validationService.checkUserId(Integer.valueOf(33))).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount(Double.valueOf(100.00))).thenReturn(ValidationResult.VALID);
+
+        List<PaymentResult> results = paymentService.createPayments(Collections.singletonList(new PaymentRequest(33, 100.00)));
+
+        assertEquals(ValidationResult.USER_NOT_FOUND, results.get(0).getRejection());
+        assertThat(results.get(0).getError())
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessage("User with id 33 not found");
+    }
+
+    @Test
+    void shouldFallBackToSingleSavesWhenTheBatchIsRejected() {
+        when(validationService.checkUserId(Integer.valueOf(11))).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount(Double.valueOf(100.00))).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount(Double.valueOf(200.00))).thenReturn(ValidationResult.VALID);
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+        when(validationService.checkUser(user)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkPayment(user, 100.00)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkPayment(user, 200.00)).thenReturn(ValidationResult.VALID);
+        when(paymentRepository.saveAll(anyList())).thenThrow(new IllegalArgumentException("Already saved"));
+        IllegalArgumentException duplicate = new IllegalArgumentException("Payment already saved");
+        when(paymentRepository.save(any())).thenThrow(duplicate).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<PaymentResult> results = paymentService.createPayments(Arrays.asList(
+                new PaymentRequest(11, 100.00),
+                new PaymentRequest(11, 200.00)));
+
+        assertThat(results.get(0).getError()).isSameAs(duplicate);
+        assertEquals(200.00, results.get(1).getPayment().getAmount());
+    }
+
+    @Test
+    void shouldAnswerARegisteredThresholdFromItsView() {
+        ObservablePaymentRepository observableRepository = new ObservablePaymentRepository(new InMemPaymentRepository());
+        paymentService = new PaymentService(userRepository, observableRepository, validationService);
+        Payment large = observableRepository.save(new Payment(11, 500.00, "Payment from user Ben"));
+
+        paymentService.registerAmountThreshold(100.00);
+        Payment later = observableRepository.save(new Payment(11, 700.00, "Payment from user Ben"));
+
+        assertThat(paymentService.getAllByAmountExceeding(100.00)).containsExactly(large, later);
+        assertSame(paymentService.getAllByAmountExceeding(100.00), paymentService.getAllByAmountExceeding(100.00));
+        paymentService.unregisterAmountThreshold(100.00);
+        assertNotSame(paymentService.getAllByAmountExceeding(100.00), paymentService.getAllByAmountExceeding(100.00));
+    }
+
+    @Test
+    void shouldThrowIllegalStateExceptionWhenRegisteringAThresholdOnARepositoryWithoutEvents() {
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> paymentService.registerAmountThreshold(100.00))
+                .withMessage("Payment repository does not publish its changes");
+    }
+
+    @Test
+    void shouldTakeNewPaymentIdsFromTheGivenGenerator() {
+        UUID paymentId = UUID.randomUUID();
+        paymentService = new PaymentService(userRepository, paymentRepository, validationService, null, () -> paymentId);
+        when(validationService.checkUserId((Integer) 11)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkAmount((Double) 333.00)).thenReturn(ValidationResult.VALID);
+        when(userRepository.findById(11)).thenReturn(Optional.of(user));
+        when(validationService.checkUser(user)).thenReturn(ValidationResult.VALID);
+        when(validationService.checkPayment(user, 333.00)).thenReturn(ValidationResult.VALID);
+        when(paymentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(paymentId, paymentService.createPayment(11, 333.00).getPaymentId());
     }
 }
@@ -0,0 +1,90 @@
+package com.endava.internship.mocking.service;
+
+import com.endava.internship.mocking.model.Status;
+import com.endava.internship.mocking.model.User;
+import com.endava.internship.mocking.model.ValidationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleBasedValidationServiceTest {
+
+    User user = new User(1, "John", Status.ACTIVE);
+
+    UserLimitRule userLimitRule;
+
+    RuleBasedValidationService validationService;
+
+    @BeforeEach
+    void setUp() {
+        userLimitRule = new UserLimitRule();
+        userLimitRule.setLimit(1, 100.00);
+        validationService = new RuleBasedValidationService(Arrays.asList(userLimitRule, new AmountCapRule(1_000.00)));
+    }
+
+    @Test
+    void shouldAcceptAPaymentThatPassesEveryRule() {
+        assertEquals(ValidationResult.VALID, validationService.checkPayment(user, 50.00));
+        assertDoesNotThrow(() -> validationService.validatePayment(user, 50.00));
+    }
+
+    @Test
+    void shouldReportTheFirstFailingRuleAndSkipTheRest() {
+        assertEquals(ValidationResult.AMOUNT_LIMIT_EXCEEDED, validationService.checkPayment(user, 5_000.00));
+
+        List<RuleStatistics> statistics = validationService.ruleStatistics();
+        assertEquals("AmountCapRule", statistics.get(0).getName());
+        assertEquals(1, statistics.get(0).getRejections());
+        assertEquals(0, statistics.get(1).getEvaluations());
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenTheUserLimitIsExceeded() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> validationService.validatePayment(user, 500.00))
+                .withMessage("Amount exceeds the limit of user with id 1");
+    }
+
+    @Test
+    void shouldMoveTheRuleThatRejectsMostPerCostToTheFront() {
+        PaymentRule expensiveAlwaysRejecting = new PaymentRule() {
+            @Override
+            public ValidationResult check(User user, double amount) {
+                return ValidationResult.USER_LIMIT_EXCEEDED;
+            }
+
+            @Override
+            public int cost() {
+                return 2;
+            }
+
+            @Override
+            public String name() {
+                return "blocklist";
+            }
+        };
+        RuleBasedValidationService service =
+                new RuleBasedValidationService(Arrays.asList(new AmountCapRule(1_000.00), expensiveAlwaysRejecting));
+        assertEquals("AmountCapRule", service.ruleStatistics().get(0).getName());
+
+        for (int i = 0; i < 100; i++) {
+            service.checkPayment(user, 10.00);
+        }
+        service.reorder();
+
+        assertThat(service.ruleStatistics()).extracting(RuleStatistics::getName).containsExactly("blocklist", "AmountCapRule");
+    }
+
+    @Test
+    void shouldRejectANullRule() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new RuleBasedValidationService(Arrays.asList(new AmountCapRule(1.00), null)))
+                .withMessage("Rule must not be null");
+    }
+}
@@ -0,0 +1,132 @@
+package com.endava.internship.mocking.service;
+
+import com.endava.internship.mocking.model.ValidationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.*;
+
+class VelocityLimiterTest {
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    AtomicLong ticker;
+
+    VelocityLimiter velocityLimiter;
+
+    @BeforeEach
+    void setUp() {
+        ticker = new AtomicLong();
+        velocityLimiter = new VelocityLimiter(3, 500.00, Duration.ofMinutes(1), ticker::get);
+    }
+
+    @Test
+    void shouldRejectTheUserOnceThePaymentCountIsUsedUp() {
+        assertEquals(ValidationResult.VALID, velocityLimiter.tryAcquire(1, 10.00));
+        assertEquals(ValidationResult.VALID, velocityLimiter.tryAcquire(1, 10.00));
+        assertEquals(ValidationResult.VALID, velocityLimiter.tryAcquire(1, 10.00));
+
+        assertEquals(ValidationResult.RATE_LIMIT_EXCEEDED, velocityLimiter.tryAcquire(1, 10.00));
+        assertEquals(ValidationResult.VALID, velocityLimiter.tryAcquire(2, 10.00));
+        assertEquals(1, velocityLimiter.rejectionCount());
+    }
+
+    @Test
+    void shouldRejectTheUserOnceTheAmountIsUsedUp() {
+        assertEquals(ValidationResult.VALID, velocityLimiter.tryAcquire(1, 400.00));
+
+        assertEquals(ValidationResult.RATE_LIMIT_EXCEEDED, velocityLimiter.tryAcquire(1, 200.00));
+        assertEquals(100.00, velocityLimiter.availableAmount(1), 0.001);
+        assertEquals(2, velocityLimiter.availablePayments(1));
+    }
+
+    @Test
+    void shouldGiveBackWhatWasAcquiredOnRelease() {
+        velocityLimiter.tryAcquire(1, 400.00);
+
+        velocityLimiter.release(1, 400.00);
+        velocityLimiter.release(1, 400.00);
+
+        assertEquals(500.00, velocityLimiter.availableAmount(1), 0.001);
+        assertEquals(3, velocityLimiter.availablePayments(1));
+        assertEquals(ValidationResult.VALID, velocityLimiter.tryAcquire(1, 450.00));
+    }
+
+    @Test
+    void shouldRefillTheWindowOverTime() {
+        velocityLimiter.tryAcquire(1, 500.00);
+        assertEquals(ValidationResult.RATE_LIMIT_EXCEEDED, velocityLimiter.tryAcquire(1, 250.00));
+
+        ticker.addAndGet(WINDOW_NANOS / 2);
+
+        assertEquals(ValidationResult.VALID, velocityLimiter.tryAcquire(1, 250.00));
+    }
+
+    @Test
+    void shouldEvictUsersThatStayedIdleForAWholeWindow() {
+        velocityLimiter.tryAcquire(1, 100.00);
+        ticker.addAndGet(WINDOW_NANOS / 2);
+        velocityLimiter.tryAcquire(2, 100.00);
+        ticker.addAndGet(WINDOW_NANOS / 2);
+
+        velocityLimiter.evictIdle();
+
+        assertEquals(1, velocityLimiter.trackedUsers());
+        assertEquals(1, velocityLimiter.evictionCount());
+        assertEquals(500.00, velocityLimiter.availableAmount(1));
+        assertEquals(ValidationResult.VALID, velocityLimiter.tryAcquire(1, 500.00));
+    }
+
+    @Test
+    void shouldEvictIdleUsersAFewAtATimeWhileServingOthers() {
+        for (int userId = 1; userId <= 20; userId++) {
+            velocityLimiter.tryAcquire(userId, 100.00);
+        }
+        ticker.addAndGet(WINDOW_NANOS);
+
+        for (int i = 0; i < 3; i++) {
+            velocityLimiter.tryAcquire(99, 1.00);
+        }
+        assertTrue(velocityLimiter.trackedUsers() > 1);
+        for (int i = 0; i < 10; i++) {
+            velocityLimiter.tryAcquire(99, 1.00);
+        }
+
+        assertEquals(1, velocityLimiter.trackedUsers());
+        assertEquals(20, velocityLimiter.evictionCount());
+    }
+
+    @Test
+    void shouldNotGrantMoreThanTheLimitUnderConcurrentAcquires() throws InterruptedException {
+        VelocityLimiter limiter = new VelocityLimiter(100, 1_000_000.00, Duration.ofDays(1));
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1_000; i++) {
+            executor.execute(() -> {
+                if (limiter.tryAcquire(7, 1.00).isValid()) {
+                    granted.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, granted.get());
+        assertEquals(900, limiter.rejectionCount());
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionIfTheUserIdIsNull() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> velocityLimiter.tryAcquire(null, 10.00))
+                .withMessage("User id must not be null");
+    }
+}